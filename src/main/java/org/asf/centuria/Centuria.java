@@ -7,9 +7,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.InvalidKeyException;
@@ -33,6 +35,9 @@ import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -40,6 +45,7 @@ import javax.net.ssl.SSLContext;
 import org.asf.connective.https.ConnectiveHTTPSServer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.asf.centuria.dms.impl.FileBasedDMManager;
 import org.asf.centuria.entities.components.ComponentManager;
 import org.asf.centuria.entities.inventoryitems.InventoryItemManager;
 import org.asf.centuria.entities.players.Player;
@@ -77,6 +83,10 @@ import org.asf.centuria.networking.http.api.custom.RegistrationHandler;
 import org.asf.centuria.networking.http.api.custom.SaveManagerHandler;
 import org.asf.centuria.networking.http.api.custom.UserDetailsHandler;
 import org.asf.centuria.networking.http.director.GameServerRequestHandler;
+import org.asf.centuria.util.ConnectionThreads;
+import org.asf.centuria.util.OutboundQueue;
+import org.asf.centuria.util.TimerService;
+import org.asf.centuria.util.TimerService.Timeout;
 import org.asf.rats.ConnectiveHTTPServer;
 import org.asf.rats.ConnectiveServerFactory;
 
@@ -117,7 +127,7 @@ public class Centuria {
 	private static PublicKey publicKey;
 
 	// Updating
-	private static boolean cancelUpdate = false;
+	private static Timeout updateTimer;
 	private static boolean updating = false;
 	private static String nextVersion = null;
 
@@ -245,9 +255,10 @@ public class Centuria {
 	 * 
 	 * @return True if successful, false otherwise
 	 */
-	public static boolean cancelUpdate() {
+	public static synchronized boolean cancelUpdate() {
 		if (updating) {
-			cancelUpdate = true;
+			updateTimer.cancel();
+			updating = false;
 			nextVersion = null;
 			EventBus.getInstance().dispatchEvent(new UpdateCancelEvent());
 			return true;
@@ -262,58 +273,54 @@ public class Centuria {
 	 * @param mins Time given before restart in minutes
 	 * @return True if successful, false otherwise
 	 */
-	public static boolean runUpdater(int mins) {
+	public static synchronized boolean runUpdater(int mins) {
 		// Run timer
-		if (!cancelUpdate) {
+		if (!updating) {
 			updating = true;
 
 			EventBus.getInstance().dispatchEvent(new ServerUpdateEvent(nextVersion, mins));
-			final int minutes = mins;
-			Thread th = new Thread(() -> {
-				int remaining = minutes;
-				while (!cancelUpdate) {
-					String message = null;
-					switch (remaining) {
-					case 60:
-					case 30:
-					case 15:
-					case 10:
-					case 5:
-					case 3:
-						message = "%xt%ua%-1%7391|" + remaining + "%";
-						break;
-					case 1:
-						message = "%xt%ua%-1%7390|1%";
-						break;
-					case 0:
-						updateShutdown();
-						cancelUpdate = false;
-						return;
+			AtomicInteger remaining = new AtomicInteger(mins);
+			AtomicReference<Timeout> timer = new AtomicReference<Timeout>();
+			updateTimer = TimerService.getInstance().scheduleRepeating(() -> {
+				int value = remaining.getAndDecrement();
+				if (value <= 0) {
+					// Stop the timer, the first run may happen before it is assigned so
+					// later runs check again
+					Timeout self = timer.get();
+					if (self != null)
+						self.cancel();
+					if (value == 0) {
+						// Shut down, this waits for players to log off so it needs its own
+						// thread
+						Thread th = new Thread(() -> updateShutdown(), "Update Thread");
+						th.start();
 					}
+					return;
+				}
 
-					if (message != null) {
-						// Warn everyone
-						for (Player plr : Centuria.gameServer.getPlayers()) {
-							plr.client.sendPacket(message);
-						}
-					}
+				String message = null;
+				switch (value) {
+				case 60:
+				case 30:
+				case 15:
+				case 10:
+				case 5:
+				case 3:
+					message = "%xt%ua%-1%7391|" + (remaining.get() + 1) + "%";
+					break;
+				case 1:
+					message = "%xt%ua%-1%7390|1%";
+					break;
+				}
 
-					for (int i = 0; i < 60; i++) {
-						if (cancelUpdate)
-							break;
-						try {
-							Thread.sleep(1000);
-						} catch (InterruptedException e) {
-						}
+				if (message != null) {
+					// Warn everyone
+					for (Player plr : Centuria.gameServer.getPlayers()) {
+						plr.client.sendPacket(message);
 					}
-
-					remaining--;
 				}
-				cancelUpdate = false;
-				updating = false;
-			});
-			th.setName("Update Thread");
-			th.start();
+			}, 0, 1, TimeUnit.MINUTES);
+			timer.set(updateTimer);
 
 			return true;
 		}
@@ -390,7 +397,13 @@ public class Centuria {
 							+ "give-all-furniture=false\n" + "give-all-currency=false\n" + "give-all-resources=false\n"
 							+ "server-spawn-behaviour=random\ndefault-save-behaviour=single\n"
 							+ "discovery-server-address=localhost\n" + "encrypt-api=false\n" + "encrypt-chat=true\n"
-							+ "encrypt-game=false\n" + "debug-mode=false\n" + "\nvpn-user-whitelist=vpn-whitelist\n"
+							+ "encrypt-game=false\n" + "debug-mode=false\n" + "\ngame-transport=blocking\n"
+							+ "game-event-loops=0\n" + "virtual-threads=false\n" + "movement-tick-rate=0\n"
+							+ "interest-radius=0\n" + "interest-hysteresis=10\n" + "game-compression=off\n"
+							+ "game-compression-threshold=8192\n" + "outbound-queue-messages=2000\n"
+							+ "outbound-queue-bytes=4194304\n" + "outbound-queue-eviction-delay=10\n"
+							+ "login-concurrency=8\n" + "login-queue-size=5000\n" + "dm-history-length=20\n"
+							+ "\nvpn-user-whitelist=vpn-whitelist\n"
 							+ "vpn-ipv4-banlist=\n" + "vpn-ipv6-banlist=");
 		}
 
@@ -451,6 +464,22 @@ public class Centuria {
 		if (System.getProperty("debugMode", "false").equals("true"))
 			debugMode = true;
 
+		// Connection threading
+		if (properties.getOrDefault("virtual-threads", "false").equals("true")) {
+			if (ConnectionThreads.useVirtualThreads(true))
+				Centuria.logger.info("Using virtual threads for client connections.");
+			else
+				Centuria.logger.warn("Virtual threads are not supported by this java version, using platform threads.");
+		}
+
+		// Outbound queue limits
+		OutboundQueue.configure(Integer.parseInt(properties.getOrDefault("outbound-queue-messages", "2000")),
+				Long.parseLong(properties.getOrDefault("outbound-queue-bytes", "4194304")),
+				Long.parseLong(properties.getOrDefault("outbound-queue-eviction-delay", "10")) * 1000);
+
+		// DM history
+		FileBasedDMManager.configure(Integer.parseInt(properties.getOrDefault("dm-history-length", "20")));
+
 		// Create default save settings if needed
 		File defaultSaveSettingsFile = new File("savemanager.json");
 		if (!defaultSaveSettingsFile.exists()) {
@@ -606,6 +635,11 @@ public class Centuria {
 		//
 		// Load game server
 		ServerSocket sock;
+		boolean selectorTransport = properties.getOrDefault("game-transport", "blocking").equals("selector");
+		if (selectorTransport && encryptGame) {
+			Centuria.logger.warn("The selector transport does not support encryption, using the blocking transport");
+			selectorTransport = false;
+		}
 		Centuria.logger.info("Starting Game server on port " + Integer.parseInt(properties.get("game-port")) + "...");
 		if (encryptGame)
 			try {
@@ -618,7 +652,13 @@ public class Centuria {
 				sock = new ServerSocket(Integer.parseInt(properties.get("game-port")), 0,
 						InetAddress.getByName("0.0.0.0"));
 			}
-		else
+		else if (selectorTransport) {
+			// Non-blocking transport needs a channel-backed socket
+			ServerSocketChannel channel = ServerSocketChannel.open();
+			channel.bind(new InetSocketAddress(InetAddress.getByName("0.0.0.0"),
+					Integer.parseInt(properties.get("game-port"))));
+			sock = channel.socket();
+		} else
 			sock = new ServerSocket(Integer.parseInt(properties.get("game-port")), 0, InetAddress.getByName("0.0.0.0"));
 		for (ICenturiaModule module : ModuleManager.getInstance().getAllModules()) {
 			gameServer = module.replaceGameServer(sock);
@@ -630,6 +670,22 @@ public class Centuria {
 
 		// Server settings
 		gameServer.whitelistFile = properties.get("vpn-user-whitelist");
+		if (selectorTransport)
+			gameServer.useSelectorTransport(Integer.parseInt(properties.getOrDefault("game-event-loops", "0")));
+		int movementTickRate = Integer.parseInt(properties.getOrDefault("movement-tick-rate", "0"));
+		if (movementTickRate > 0)
+			gameServer.useMovementTick(movementTickRate);
+		String compression = properties.getOrDefault("game-compression", "off");
+		if (!compression.equals("off"))
+			gameServer.useOutboundCompression(
+					Integer.parseInt(properties.getOrDefault("game-compression-threshold", "8192")),
+					compression.equals("all"));
+		double interestRadius = Double.parseDouble(properties.getOrDefault("interest-radius", "0"));
+		if (interestRadius > 0)
+			gameServer.useInterestManagement(interestRadius,
+					Double.parseDouble(properties.getOrDefault("interest-hysteresis", "10")));
+		gameServer.useLoginPipeline(Integer.parseInt(properties.getOrDefault("login-concurrency", "8")),
+				Integer.parseInt(properties.getOrDefault("login-queue-size", "5000")));
 
 		// Download VPN ips
 		try {
@@ -774,14 +830,23 @@ public class Centuria {
 		return PEM;
 	}
 
+	// Signature instances, reused by each thread
+	private static ThreadLocal<Signature> signatures = ThreadLocal.withInitial(() -> {
+		try {
+			return Signature.getInstance("Sha256WithRSA");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	});
+
 	// Signature generator
 	public static byte[] sign(byte[] data) {
 		try {
-			Signature sig = Signature.getInstance("Sha256WithRSA");
+			Signature sig = signatures.get();
 			sig.initSign(privateKey);
 			sig.update(data);
 			return sig.sign();
-		} catch (SignatureException | NoSuchAlgorithmException | InvalidKeyException e) {
+		} catch (SignatureException | InvalidKeyException e) {
 			throw new RuntimeException(e);
 		}
 	}
@@ -789,11 +854,11 @@ public class Centuria {
 	// Signature verification
 	public static boolean verify(byte[] data, byte[] signature) {
 		try {
-			Signature sig = Signature.getInstance("Sha256WithRSA");
+			Signature sig = signatures.get();
 			sig.initVerify(publicKey);
 			sig.update(data);
 			return sig.verify(signature);
-		} catch (SignatureException | NoSuchAlgorithmException | InvalidKeyException e) {
+		} catch (SignatureException | InvalidKeyException e) {
 			return false;
 		}
 	}
@@ -13,9 +13,10 @@ import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import javax.crypto.SecretKeyFactory;
@@ -31,6 +32,7 @@ import org.asf.centuria.accounts.SaveSettings;
 import org.asf.centuria.modules.eventbus.EventBus;
 import org.asf.centuria.modules.events.accounts.AccountRegistrationEvent;
 import org.asf.centuria.packets.xt.gameserver.inventory.InventoryItemDownloadPacket;
+import org.asf.centuria.util.TimerService;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -87,7 +89,7 @@ public class FileBasedAccountManager extends AccountManager {
 	}
 
 	private static SecureRandom rnd = new SecureRandom();
-	private static HashMap<String, Integer> passswordLock = new HashMap<String, Integer>();
+	private static Map<String, Object> passswordLock = new ConcurrentHashMap<String, Object>();
 	private int lastAccountID = 0;
 
 	public FileBasedAccountManager() {
@@ -106,35 +108,11 @@ public class FileBasedAccountManager extends AccountManager {
 			}
 	}
 
-	static {
-		Thread th = new Thread(() -> {
-			while (true) {
-				HashMap<String, Integer> passswordLock;
-				while (true) {
-					try {
-						passswordLock = new HashMap<String, Integer>(FileBasedAccountManager.passswordLock);
-						break;
-					} catch (ConcurrentModificationException e) {
-					}
-				}
-
-				for (String pwd : passswordLock.keySet()) {
-					if (passswordLock.get(pwd) - 1 <= 0) {
-						FileBasedAccountManager.passswordLock.remove(pwd);
-					} else {
-						FileBasedAccountManager.passswordLock.put(pwd, passswordLock.get(pwd) - 1);
-					}
-				}
-
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					break;
-				}
-			}
-		});
-		th.setDaemon(true);
-		th.start();
+	// Locks the password of an account for a few seconds after a failed attempt
+	private static void lockPassword(String id) {
+		Object lock = new Object();
+		passswordLock.put(id, lock);
+		TimerService.getInstance().schedule(() -> passswordLock.remove(id, lock), 8, TimeUnit.SECONDS);
 	}
 
 	@Override
@@ -184,7 +162,7 @@ public class FileBasedAccountManager extends AccountManager {
 
 				// Compare hashes
 				if (hash.length != cHash.length) {
-					passswordLock.put(id, 8);
+					lockPassword(id);
 					try {
 						Thread.sleep(8000);
 					} catch (InterruptedException e) {
@@ -193,7 +171,7 @@ public class FileBasedAccountManager extends AccountManager {
 				}
 				for (int i = 0; i < hash.length; i++) {
 					if (hash[i] != cHash[i]) {
-						passswordLock.put(id, 8);
+						lockPassword(id);
 						try {
 							Thread.sleep(8000);
 						} catch (InterruptedException e) {
@@ -3,63 +3,139 @@ package org.asf.centuria.data;
 import java.util.Base64;
 
 public class XtReader {
-	private String[] objects;
-	private int position = 0;
+	// Powers of ten that can be represented exactly
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// Packet data, fields are read in place from the range between offset and end
+	private CharSequence data;
+	private int offset;
+	private int end;
+	private boolean finished;
+
+	private int markOffset;
+	private boolean markFinished;
 
 	public XtReader(String data) {
-		objects = parseXT(data);
+		this((CharSequence) data);
 	}
 
-	private String[] parseXT(String packet) {
-		if (packet.startsWith("%xt%"))
-			return packet.substring(4).split("%");
-		else
-			return packet.split("%");
+	/**
+	 * Creates a reader for a packet
+	 *
+	 * @since Beta 1.5.4
+	 * @param data Packet data
+	 */
+	public XtReader(CharSequence data) {
+		this.data = data;
+		end = data.length();
+		if (end >= 4 && data.charAt(0) == '%' && data.charAt(1) == 'x' && data.charAt(2) == 't'
+				&& data.charAt(3) == '%')
+			offset = 4;
+
+		// Trailing empty fields are ignored, same as String.split
+		if (offset != end) {
+			while (end > offset && data.charAt(end - 1) == '%')
+				end--;
+			finished = end == offset;
+		}
+		markOffset = offset;
+		markFinished = finished;
+	}
+
+	/**
+	 * Marks the current position, reset() returns to it
+	 *
+	 * @since Beta 1.5.4
+	 */
+	public void mark() {
+		markOffset = offset;
+		markFinished = finished;
+	}
+
+	/**
+	 * Returns to the last marked position (or the start of the packet)
+	 *
+	 * @since Beta 1.5.4
+	 */
+	public void reset() {
+		offset = markOffset;
+		finished = markFinished;
 	}
 
 	public boolean hasNext() {
-		return position < objects.length;
+		return !finished;
+	}
+
+	/**
+	 * Moves to the next field
+	 *
+	 * @return End of the current field (the start is the offset before the call)
+	 */
+	private int next() {
+		for (int i = offset; i < end; i++) {
+			if (data.charAt(i) == '%') {
+				offset = i + 1;
+				return i;
+			}
+		}
+		offset = end;
+		finished = true;
+		return end;
 	}
 
 	public String read() {
 		if (!hasNext())
 			return null;
-		return objects[position++];
+		int start = offset;
+		return data.subSequence(start, next()).toString();
 	}
 
 	public int readInt() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
 			return 0;
-		return Integer.parseInt(data);
+		int start = offset;
+		return Integer.parseInt(data, start, next(), 10);
 	}
 
 	public long readLong() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
 			return 0;
-		return Long.parseLong(data);
+		int start = offset;
+		return Long.parseLong(data, start, next(), 10);
 	}
 
 	public double readDouble() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
 			return 0;
-		return Double.parseDouble(data);
+		int start = offset;
+		int fieldEnd = next();
+		double res = parseDecimal(data, start, fieldEnd, 15, 22);
+		if (Double.isNaN(res))
+			return Double.parseDouble(data.subSequence(start, fieldEnd).toString());
+		return res;
 	}
 
 	public float readFloat() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
 			return 0;
-		return Float.parseFloat(data);
+		int start = offset;
+		int fieldEnd = next();
+		double res = parseDecimal(data, start, fieldEnd, 7, 10);
+		if (Double.isNaN(res))
+			return Float.parseFloat(data.subSequence(start, fieldEnd).toString());
+		return (float) res;
 	}
 
 	public boolean readBoolean() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
+			return false;
+		int start = offset;
+		int fieldEnd = next();
+		if (fieldEnd - start != 4)
 			return false;
-		return Boolean.parseBoolean(data);
+		return (data.charAt(start) | 0x20) == 't' && (data.charAt(start + 1) | 0x20) == 'r'
+				&& (data.charAt(start + 2) | 0x20) == 'u' && (data.charAt(start + 3) | 0x20) == 'e';
 	}
 
 	public byte[] readBytes() {
@@ -70,14 +146,69 @@ public class XtReader {
 	}
 
 	public String readRemaining() {
-		String rest = "";
-		while (hasNext()) {
-			if (rest.isEmpty())
-				rest = read();
+		if (!hasNext())
+			return "";
+
+		// Leading empty fields are skipped
+		int start = offset;
+		while (start < end && data.charAt(start) == '%')
+			start++;
+		offset = end;
+		finished = true;
+		return data.subSequence(start, end).toString();
+	}
+
+	/**
+	 * Parses plain decimal numbers (eg. -12.345) without creating a string,
+	 * numbers are only parsed if the result is exact after a single rounding step
+	 *
+	 * @param data        Characters to parse
+	 * @param start       Number start
+	 * @param end         Number end
+	 * @param maxDigits   Maximum amount of significant digits
+	 * @param maxFraction Maximum amount of fraction digits
+	 * @return Parsed number or NaN if the fallback parser needs to be used
+	 */
+	private static double parseDecimal(CharSequence data, int start, int end, int maxDigits, int maxFraction) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (data.charAt(i) == '-' || data.charAt(i) == '+')) {
+			negative = data.charAt(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		boolean hasDigits = false;
+		int digits = 0;
+		int fraction = -1;
+		for (; i < end; i++) {
+			char ch = data.charAt(i);
+			if (ch >= '0' && ch <= '9') {
+				hasDigits = true;
+				if (mantissa != 0 || ch != '0')
+					digits++;
+				mantissa = mantissa * 10 + (ch - '0');
+				if (fraction != -1)
+					fraction++;
+				if (digits > maxDigits)
+					return Double.NaN;
+			} else if (ch == '.' && fraction == -1)
+				fraction = 0;
+			else
+				return Double.NaN; // Exponents, NaN, Infinity, whitespace
+		}
+		if (!hasDigits || fraction > maxFraction)
+			return Double.NaN;
+
+		// Both values are exact, the division rounds once
+		double res = mantissa;
+		if (fraction > 0) {
+			if (maxDigits <= 7)
+				res = (float) mantissa / (float) POWERS_OF_TEN[fraction];
 			else
-				rest += "%" + read();
+				res = res / POWERS_OF_TEN[fraction];
 		}
-		return rest;
+		return negative ? -res : res;
 	}
 
 }
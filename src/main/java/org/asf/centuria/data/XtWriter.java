@@ -1,23 +1,72 @@
 package org.asf.centuria.data;
 
-import java.util.ArrayList;
 import java.util.Base64;
 
 public class XtWriter {
 
-	private ArrayList<String> objects = new ArrayList<String>();
+	// Writers are reused per thread, large buffers are dropped when released
+	private static final int MAX_POOLED_SIZE = 64 * 1024;
+	private static final ThreadLocal<XtWriter> pool = ThreadLocal.withInitial(() -> new XtWriter());
 
-	public String encode() {
-		boolean first = true;
-		String d = "%xt%";
-		for (String t : objects) {
-			if (!first)
-				d += "%";
-			d += t;
-			first = false;
-		}
-		return d;
+	private StringBuilder data = new StringBuilder("%xt%");
+	private boolean first = true;
+
+	// Pooling
+	private boolean inUse;
+
+	/**
+	 * Retrieves a reusable writer for the current thread, call release() once
+	 * the packet has been sent
+	 *
+	 * @since Beta 1.5.4
+	 * @return XtWriter instance
+	 */
+	public static XtWriter obtain() {
+		XtWriter writer = pool.get();
+		if (writer.inUse)
+			return new XtWriter(); // Nested use
+		writer.inUse = true;
+		return writer;
+	}
+
+	/**
+	 * Returns a writer obtained through obtain() to the pool, the writer must not
+	 * be used after this call
+	 *
+	 * @since Beta 1.5.4
+	 */
+	public void release() {
+		if (!inUse)
+			return;
+		reset();
+		if (data.capacity() > MAX_POOLED_SIZE)
+			data = new StringBuilder("%xt%");
+		inUse = false;
+	}
+
+	/**
+	 * Clears the written fields
+	 *
+	 * @since Beta 1.5.4
+	 */
+	public void reset() {
+		data.setLength(4);
+		first = true;
+	}
+
+	/**
+	 * Retrieves the packet length in characters, the UTF-8 encoded packet is at
+	 * least this long
+	 *
+	 * @since Beta 1.5.4
+	 * @return Packet length
+	 */
+	public int length() {
+		return data.length();
+	}
 
+	public String encode() {
+		return data.toString();
 	}
 
 	@Override
@@ -25,8 +74,74 @@ public class XtWriter {
 		return encode();
 	}
 
+	/**
+	 * Encodes the packet as UTF-8 including the null terminator
+	 *
+	 * @since Beta 1.5.4
+	 * @return Packet bytes
+	 */
+	public byte[] encodeFrame() {
+		byte[] frame = new byte[frameLength()];
+		encodeFrame(frame);
+		return frame;
+	}
+
+	private int frameLength() {
+		int length = 1;
+		int size = data.length();
+		for (int i = 0; i < size; i++) {
+			char ch = data.charAt(i);
+			if (ch < 0x80)
+				length++;
+			else if (ch < 0x800)
+				length += 2;
+			else if (Character.isHighSurrogate(ch) && i + 1 < size && Character.isLowSurrogate(data.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(ch))
+				length++; // Encoded as '?'
+			else
+				length += 3;
+		}
+		return length;
+	}
+
+	private void encodeFrame(byte[] output) {
+		int pos = 0;
+		int size = data.length();
+		for (int i = 0; i < size; i++) {
+			char ch = data.charAt(i);
+			if (ch < 0x80)
+				output[pos++] = (byte) ch;
+			else if (ch < 0x800) {
+				output[pos++] = (byte) (0xC0 | (ch >> 6));
+				output[pos++] = (byte) (0x80 | (ch & 0x3F));
+			} else if (Character.isHighSurrogate(ch) && i + 1 < size && Character.isLowSurrogate(data.charAt(i + 1))) {
+				int cp = Character.toCodePoint(ch, data.charAt(++i));
+				output[pos++] = (byte) (0xF0 | (cp >> 18));
+				output[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				output[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				output[pos++] = (byte) (0x80 | (cp & 0x3F));
+			} else if (Character.isSurrogate(ch))
+				output[pos++] = '?';
+			else {
+				output[pos++] = (byte) (0xE0 | (ch >> 12));
+				output[pos++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+				output[pos++] = (byte) (0x80 | (ch & 0x3F));
+			}
+		}
+		output[pos] = 0;
+	}
+
+	private StringBuilder next() {
+		if (!first)
+			data.append('%');
+		first = false;
+		return data;
+	}
+
 	public void add(String object) {
-		objects.add(object);
+		next().append(object);
 	}
 
 	public void writeString(String data) {
@@ -34,23 +149,23 @@ public class XtWriter {
 	}
 
 	public void writeInt(int num) {
-		add(Integer.toString(num));
+		next().append(num);
 	}
 
 	public void writeLong(long num) {
-		add(Long.toString(num));
+		next().append(num);
 	}
 
 	public void writeFloat(float num) {
-		add(Float.toString(num));
+		next().append(num);
 	}
 
 	public void writeDouble(double num) {
-		add(Double.toString(num));
+		next().append(num);
 	}
 
 	public void writeBoolean(boolean v) {
-		add(Boolean.toString(v));
+		next().append(v);
 	}
 
 	public void writeBytes(byte[] bytes) {
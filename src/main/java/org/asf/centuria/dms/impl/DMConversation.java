@@ -0,0 +1,369 @@
+package org.asf.centuria.dms.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.asf.centuria.dms.PrivateChatMessage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * In-memory state of a DM conversation, holds the participants and a ring
+ * buffer of the most recent messages.<br/>
+ * <br/>
+ * Changes are appended to the conversation log, compacting folds the log into
+ * the conversation file. Log records are numbered, records already contained in
+ * the conversation file are skipped when the log is replayed. The conversation
+ * lock must be held to use the conversation.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+class DMConversation {
+
+	/**
+	 * Conversation lock
+	 */
+	public final ReentrantLock lock = new ReentrantLock();
+
+	private File file;
+	private File logFile;
+	private FileOutputStream log;
+	private int logRecords;
+	private long sequence;
+	private boolean closed;
+	private volatile long lastAccess = System.currentTimeMillis();
+
+	private ArrayList<String> participants = new ArrayList<String>();
+	private PrivateChatMessage[] messages;
+	private int first;
+	private int count;
+
+	/**
+	 * Creates an empty conversation, create or load it before use
+	 *
+	 * @param file          Conversation file
+	 * @param logFile       Conversation log file
+	 * @param historyLength Amount of messages to keep
+	 */
+	public DMConversation(File file, File logFile, int historyLength) {
+		this.file = file;
+		this.logFile = logFile;
+		messages = new PrivateChatMessage[historyLength];
+	}
+
+	/**
+	 * Saves the conversation to disk as a new conversation
+	 *
+	 * @param participants Participant IDs
+	 * @throws IOException If saving fails
+	 */
+	public void create(String[] participants) throws IOException {
+		for (String participant : participants)
+			this.participants.add(participant);
+		logFile.delete();
+		writeSnapshot();
+	}
+
+	/**
+	 * Loads the conversation from disk, replaying its log
+	 *
+	 * @return True if loaded, false if the conversation does not exist
+	 * @throws IOException If loading fails
+	 */
+	public boolean load() throws IOException {
+		if (!file.exists())
+			return false;
+
+		// Load conversation file
+		JsonObject dm;
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			dm = JsonParser.parseReader(reader).getAsJsonObject();
+		} catch (JsonParseException | IllegalStateException e) {
+			throw new IOException("Invalid conversation file: " + file, e);
+		}
+		for (JsonElement ele : dm.get("participants").getAsJsonArray())
+			participants.add(ele.getAsString());
+		for (JsonElement ele : dm.get("messages").getAsJsonArray())
+			addMessage(ele.getAsJsonObject());
+		if (dm.has("sequence"))
+			sequence = dm.get("sequence").getAsLong();
+
+		// Replay log
+		if (logFile.exists()) {
+			boolean damaged = false;
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.isEmpty())
+						continue;
+					try {
+						replay(JsonParser.parseString(line).getAsJsonObject());
+					} catch (JsonParseException | IllegalStateException | NullPointerException e) {
+						// Incomplete record, written while the server stopped
+						damaged = true;
+						break;
+					}
+				}
+			}
+
+			// Rewrite the conversation file so new records do not follow the damaged
+			// record
+			if (damaged)
+				rewrite();
+		}
+
+		return true;
+	}
+
+	private void replay(JsonObject record) {
+		long seq = record.get("sequence").getAsLong();
+		if (seq <= sequence)
+			return;
+		sequence = seq;
+		logRecords++;
+
+		switch (record.get("type").getAsString()) {
+		case "message":
+			addMessage(record);
+			break;
+		case "addParticipant":
+			participants.add(record.get("participant").getAsString());
+			break;
+		case "removeParticipant":
+			participants.remove(record.get("participant").getAsString());
+			break;
+		}
+	}
+
+	private void addMessage(JsonObject msg) {
+		PrivateChatMessage message = new PrivateChatMessage();
+		message.content = msg.get("content").getAsString();
+		message.source = msg.get("source").getAsString();
+		message.sentAt = msg.get("sentAt").getAsString();
+		addMessage(message);
+	}
+
+	private void addMessage(PrivateChatMessage message) {
+		if (messages.length == 0)
+			return;
+		if (count == messages.length) {
+			// Overwrite the oldest message
+			messages[first] = message;
+			first = (first + 1) % messages.length;
+		} else {
+			messages[(first + count) % messages.length] = message;
+			count++;
+		}
+	}
+
+	private static PrivateChatMessage copy(PrivateChatMessage message) {
+		PrivateChatMessage res = new PrivateChatMessage();
+		res.content = message.content;
+		res.source = message.source;
+		res.sentAt = message.sentAt;
+		return res;
+	}
+
+	private void append(JsonObject record) throws IOException {
+		record.addProperty("sequence", sequence + 1);
+		if (log == null)
+			log = new FileOutputStream(logFile, true);
+		log.write((record.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+		sequence++;
+		logRecords++;
+	}
+
+	private void writeSnapshot() throws IOException {
+		JsonObject dm = new JsonObject();
+		JsonArray participantObjects = new JsonArray();
+		for (String p : participants)
+			participantObjects.add(p);
+		dm.add("participants", participantObjects);
+		JsonArray messageObjects = new JsonArray();
+		for (int i = 0; i < count; i++) {
+			PrivateChatMessage message = messages[(first + i) % messages.length];
+			JsonObject msg = new JsonObject();
+			msg.addProperty("content", message.content);
+			msg.addProperty("source", message.source);
+			msg.addProperty("sentAt", message.sentAt);
+			messageObjects.add(msg);
+		}
+		dm.add("messages", messageObjects);
+		dm.addProperty("sequence", sequence);
+
+		// Replace the file at once so it is never left half written
+		File tmp = new File(file.getPath() + ".tmp");
+		Files.writeString(tmp.toPath(), dm.toString());
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Retrieves the amount of records in the log
+	 *
+	 * @return Amount of log records written since the last compaction
+	 */
+	public int getLogRecords() {
+		return logRecords;
+	}
+
+	/**
+	 * Retrieves the last time the conversation was used
+	 *
+	 * @return Time in milliseconds
+	 */
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
+	/**
+	 * Marks the conversation as used
+	 */
+	public void touch() {
+		lastAccess = System.currentTimeMillis();
+	}
+
+	/**
+	 * Checks if the conversation was closed
+	 *
+	 * @return True if closed, false otherwise
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Retrieves the participants
+	 *
+	 * @return Array of participant IDs
+	 */
+	public String[] getParticipants() {
+		return participants.toArray(t -> new String[t]);
+	}
+
+	/**
+	 * Retrieves the recent messages
+	 *
+	 * @return Array of messages, oldest first
+	 */
+	public PrivateChatMessage[] getMessages() {
+		PrivateChatMessage[] res = new PrivateChatMessage[count];
+		for (int i = 0; i < count; i++)
+			res[i] = copy(messages[(first + i) % messages.length]);
+		return res;
+	}
+
+	/**
+	 * Saves a message
+	 *
+	 * @param message Message to save
+	 * @throws IOException If writing to the log fails
+	 */
+	public void saveMessage(PrivateChatMessage message) throws IOException {
+		JsonObject record = new JsonObject();
+		record.addProperty("type", "message");
+		record.addProperty("content", message.content);
+		record.addProperty("source", message.source);
+		record.addProperty("sentAt", message.sentAt);
+		append(record);
+		addMessage(copy(message));
+	}
+
+	/**
+	 * Adds a participant
+	 *
+	 * @param participant Participant ID
+	 * @throws IOException If writing to the log fails
+	 */
+	public void addParticipant(String participant) throws IOException {
+		JsonObject record = new JsonObject();
+		record.addProperty("type", "addParticipant");
+		record.addProperty("participant", participant);
+		append(record);
+		participants.add(participant);
+	}
+
+	/**
+	 * Removes a participant
+	 *
+	 * @param participant Participant ID
+	 * @throws IOException If writing to the log fails
+	 */
+	public void removeParticipant(String participant) throws IOException {
+		if (!participants.contains(participant))
+			return;
+		JsonObject record = new JsonObject();
+		record.addProperty("type", "removeParticipant");
+		record.addProperty("participant", participant);
+		append(record);
+		participants.remove(participant);
+	}
+
+	/**
+	 * Folds the log into the conversation file
+	 *
+	 * @throws IOException If saving fails
+	 */
+	public void compact() throws IOException {
+		if (logRecords == 0)
+			return;
+		rewrite();
+	}
+
+	private void rewrite() throws IOException {
+		writeSnapshot();
+		if (log != null) {
+			log.close();
+			log = null;
+		}
+		if (logFile.exists() && !logFile.delete())
+			throw new IOException("Failed to delete " + logFile);
+		logRecords = 0;
+	}
+
+	/**
+	 * Closes the conversation log, the conversation must not be used afterwards
+	 */
+	public void close() {
+		closed = true;
+		if (log != null) {
+			try {
+				log.close();
+			} catch (IOException e) {
+			}
+			log = null;
+		}
+	}
+
+	/**
+	 * Closes the conversation and deletes it from disk
+	 */
+	public void delete() {
+		close();
+		logFile.delete();
+		file.delete();
+	}
+
+}
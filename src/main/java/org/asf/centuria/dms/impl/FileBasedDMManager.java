@@ -1,25 +1,158 @@
 package org.asf.centuria.dms.impl;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
 import org.asf.centuria.dms.DMManager;
 import org.asf.centuria.dms.PrivateChatMessage;
 import org.asf.centuria.social.SocialManager;
-
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import org.asf.centuria.util.TimerService;
 
 public class FileBasedDMManager extends DMManager {
 
-	private ArrayList<String> activeIDs = new ArrayList<String>();
+	private static final long COMPACT_INTERVAL = 60000;
+	private static final long IDLE_TIME = 10 * 60000;
+	private static final int MIN_COMPACT_RECORDS = 20;
+
+	private static int historyLength = 20;
+
+	// Conversations in memory, by normalized conversation ID
+	private ConcurrentHashMap<String, DMConversation> conversations = new ConcurrentHashMap<String, DMConversation>();
+
+	// Compaction runs on its own thread, it writes to disk and waits for the
+	// conversation locks
+	private ThreadPoolExecutor compactionWorker;
+	private AtomicBoolean compacting = new AtomicBoolean();
+
+	/**
+	 * Configures the amount of messages kept for each DM, applies to DMs loaded
+	 * afterwards
+	 *
+	 * @since Beta 1.5.4
+	 * @param historyLength Amount of messages to keep
+	 */
+	public static void configure(int historyLength) {
+		FileBasedDMManager.historyLength = Math.max(historyLength, 0);
+	}
+
+	public FileBasedDMManager() {
+		compactionWorker = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				r -> {
+					Thread th = new Thread(r, "DM Compaction");
+					th.setDaemon(true);
+					return th;
+				});
+		compactionWorker.allowCoreThreadTimeOut(true);
+		TimerService.getInstance().scheduleRepeating(() -> {
+			// Skip if the previous run has not finished
+			if (compacting.compareAndSet(false, true))
+				compactionWorker.execute(this::compactConversations);
+		}, COMPACT_INTERVAL, COMPACT_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	private static File getFile(String id) {
+		return new File("dms/" + id + ".json");
+	}
+
+	private static File getLogFile(String id) {
+		return new File("dms/" + id + ".log");
+	}
+
+	/**
+	 * Retrieves and locks a conversation, loading it from disk if needed
+	 *
+	 * @param dmID Conversation ID
+	 * @return Locked DMConversation instance or null if the DM does not exist
+	 */
+	private DMConversation lock(String dmID) {
+		String id = UUID.fromString(dmID).toString();
+		while (true) {
+			DMConversation conversation = conversations.get(id);
+			if (conversation == null) {
+				if (!getFile(id).exists())
+					return null;
+
+				// Add the conversation locked and load it afterwards, other threads wait
+				// for the lock instead of loading it again
+				DMConversation created = new DMConversation(getFile(id), getLogFile(id), historyLength);
+				created.lock.lock();
+				conversation = conversations.putIfAbsent(id, created);
+				if (conversation == null) {
+					try {
+						if (created.load()) {
+							created.touch();
+							return created;
+						}
+					} catch (IOException e) {
+						unload(id, created);
+						throw new UncheckedIOException(e);
+					}
+
+					// Deleted while loading
+					unload(id, created);
+					return null;
+				}
+				created.lock.unlock();
+			}
+
+			// Retry if the conversation was unloaded while waiting
+			conversation.lock.lock();
+			if (!conversation.isClosed()) {
+				conversation.touch();
+				return conversation;
+			}
+			conversation.lock.unlock();
+		}
+	}
+
+	private void unload(String id, DMConversation conversation) {
+		conversation.close();
+		conversations.remove(id, conversation);
+		conversation.lock.unlock();
+	}
+
+	private DMConversation lockExisting(String dmID) {
+		DMConversation conversation = lock(dmID);
+		if (conversation == null)
+			throw new IllegalArgumentException("DM not found");
+		return conversation;
+	}
+
+	private void compactConversations() {
+		try {
+			// Compact logs and unload idle conversations
+			long now = System.currentTimeMillis();
+			for (Entry<String, DMConversation> entry : conversations.entrySet()) {
+				DMConversation conversation = entry.getValue();
+				conversation.lock.lock();
+				try {
+					if (conversation.isClosed())
+						continue;
+					conversation.compact();
+					if (now - conversation.getLastAccess() > IDLE_TIME) {
+						conversation.close();
+						conversations.remove(entry.getKey(), conversation);
+					}
+				} catch (IOException e) {
+					Centuria.logger.error(MarkerManager.getMarker("DMS"), "Failed to compact DM " + entry.getKey(), e);
+				} finally {
+					conversation.lock.unlock();
+				}
+			}
+		} finally {
+			compacting.set(false);
+		}
+	}
 
 	@Override
 	public void openDM(String dmID, String[] participants) {
@@ -27,13 +160,19 @@ public class FileBasedDMManager extends DMManager {
 			if (!new File("dms").exists())
 				new File("dms").mkdirs();
 			if (!dmExists(dmID)) {
-				JsonObject dm = new JsonObject();
-				JsonArray participantObjects = new JsonArray();
-				for (String p : participants)
-					participantObjects.add(p);
-				dm.add("participants", participantObjects);
-				dm.add("messages", new JsonArray());
-				Files.writeString(Path.of("dms/" + UUID.fromString(dmID) + ".json"), dm.toString());
+				String id = UUID.fromString(dmID).toString();
+				DMConversation created = new DMConversation(getFile(id), getLogFile(id), historyLength);
+				created.lock.lock();
+				if (conversations.putIfAbsent(id, created) != null) {
+					created.lock.unlock();
+					return;
+				}
+				try {
+					created.create(participants);
+					created.lock.unlock();
+				} catch (IOException e) {
+					unload(id, created);
+				}
 			}
 		} catch (Exception e) {
 		}
@@ -42,7 +181,8 @@ public class FileBasedDMManager extends DMManager {
 	@Override
 	public boolean dmExists(String dmID) {
 		try {
-			return new File("dms/" + UUID.fromString(dmID) + ".json").exists();
+			String id = UUID.fromString(dmID).toString();
+			return conversations.containsKey(id) || getFile(id).exists();
 		} catch (Exception e) {
 			return false;
 		}
@@ -50,159 +190,103 @@ public class FileBasedDMManager extends DMManager {
 
 	@Override
 	public PrivateChatMessage[] getDMHistory(String dmID, String requester) {
-		if (!dmExists(dmID))
-			throw new IllegalArgumentException("DM not found");
-
+		PrivateChatMessage[] messages;
+		DMConversation conversation = lockExisting(dmID);
 		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("messages").getAsJsonArray();
-			reader.close();
-
-			ArrayList<PrivateChatMessage> messages = new ArrayList<PrivateChatMessage>();
-			for (JsonElement ele : data) {
-				JsonObject msg = ele.getAsJsonObject();
-				String source = msg.get("source").getAsString();
-
-				if (SocialManager.getInstance().socialListExists(requester)
-						&& SocialManager.getInstance().getPlayerIsBlocked(requester, source))
-					continue;
-
-				PrivateChatMessage message = new PrivateChatMessage();
-				message.content = msg.get("content").getAsString();
-				message.source = source;
-				message.sentAt = msg.get("sentAt").getAsString();
-				messages.add(message);
-			}
-			return messages.toArray(t -> new PrivateChatMessage[t]);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+			messages = conversation.getMessages();
+		} finally {
+			conversation.lock.unlock();
 		}
+
+		// Remove messages from blocked players
+		SocialManager manager = SocialManager.getInstance();
+		if (!manager.socialListExists(requester))
+			return messages;
+		int count = 0;
+		for (PrivateChatMessage message : messages) {
+			if (!manager.getPlayerIsBlocked(requester, message.source))
+				messages[count++] = message;
+		}
+		if (count == messages.length)
+			return messages;
+		PrivateChatMessage[] res = new PrivateChatMessage[count];
+		System.arraycopy(messages, 0, res, 0, count);
+		return res;
 	}
 
 	@Override
 	public void saveDMMessge(String dmID, PrivateChatMessage message) {
-		if (!dmExists(dmID))
-			throw new IllegalArgumentException("DM not found");
-
+		DMConversation conversation = lockExisting(dmID);
 		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("messages").getAsJsonArray();
-			reader.close();
-
-			// Remove first message if the chat is too long
-			if (data.size() >= 20)
-				data.remove(0);
-
-			// Add message
-			JsonObject msg = new JsonObject();
-			msg.addProperty("content", message.content);
-			msg.addProperty("source", message.source);
-			msg.addProperty("sentAt", message.sentAt);
-			data.add(msg);
-
-			// Save to disk
-			while (activeIDs.contains(dmID))
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					break;
-				}
-			activeIDs.add(dmID);
-			Files.writeString(Path.of("dms/" + UUID.fromString(dmID) + ".json"), dm.toString());
-			activeIDs.remove(dmID);
+			conversation.saveMessage(message);
+			compactIfNeeded(dmID, conversation);
 		} catch (IOException e) {
-			if (activeIDs.contains(dmID))
-				activeIDs.remove(dmID);
 			throw new RuntimeException(e);
+		} finally {
+			conversation.lock.unlock();
+		}
+	}
+
+	private void compactIfNeeded(String dmID, DMConversation conversation) {
+		// Keep the log short, the message is already saved so failures are only
+		// logged
+		if (conversation.getLogRecords() >= Math.max(historyLength, MIN_COMPACT_RECORDS)) {
+			try {
+				conversation.compact();
+			} catch (IOException e) {
+				Centuria.logger.error(MarkerManager.getMarker("DMS"), "Failed to compact DM " + dmID, e);
+			}
 		}
 	}
 
 	@Override
 	public String[] getDMParticipants(String dmID) {
-		ArrayList<String> participants = new ArrayList<String>();
+		DMConversation conversation = lockExisting(dmID);
 		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("participants").getAsJsonArray();
-			reader.close();
-
-			// Add participants
-			for (JsonElement ele : data) {
-				participants.add(ele.getAsString());
-			}
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+			return conversation.getParticipants();
+		} finally {
+			conversation.lock.unlock();
 		}
-		return participants.toArray(t -> new String[t]);
 	}
 
 	@Override
 	public void deleteDM(String dmID) {
-		if (dmExists(dmID))
-			new File("dms/" + UUID.fromString(dmID) + ".json").delete();
+		if (!dmExists(dmID))
+			return;
+		DMConversation conversation = lock(dmID);
+		if (conversation == null)
+			return;
+		try {
+			conversation.delete();
+			conversations.remove(UUID.fromString(dmID).toString(), conversation);
+		} finally {
+			conversation.lock.unlock();
+		}
 	}
 
 	@Override
 	public void addParticipant(String dmID, String participant) {
+		DMConversation conversation = lockExisting(dmID);
 		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("participants").getAsJsonArray();
-			reader.close();
-
-			// Add participant
-			data.add(participant);
-
-			// Save to disk
-			while (activeIDs.contains(dmID))
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					break;
-				}
-			activeIDs.add(dmID);
-			Files.writeString(Path.of("dms/" + UUID.fromString(dmID) + ".json"), dm.toString());
-			activeIDs.remove(dmID);
+			conversation.addParticipant(participant);
+			compactIfNeeded(dmID, conversation);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
+		} finally {
+			conversation.lock.unlock();
 		}
 	}
 
 	@Override
 	public void removeParticipant(String dmID, String participant) {
+		DMConversation conversation = lockExisting(dmID);
 		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("participants").getAsJsonArray();
-			reader.close();
-
-			// Remove participant
-			for (JsonElement ele : data) {
-				if (ele.getAsString().equals(participant)) {
-					data.remove(ele);
-					break;
-				}
-			}
-
-			// Save to disk
-			while (activeIDs.contains(dmID))
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					break;
-				}
-			activeIDs.add(dmID);
-			Files.writeString(Path.of("dms/" + UUID.fromString(dmID) + ".json"), dm.toString());
-			activeIDs.remove(dmID);
+			conversation.removeParticipant(participant);
+			compactIfNeeded(dmID, conversation);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
+		} finally {
+			conversation.lock.unlock();
 		}
 	}
 
@@ -3,6 +3,9 @@ package org.asf.centuria.entities.players;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import org.apache.logging.log4j.MarkerManager;
 import org.asf.centuria.Centuria;
@@ -18,11 +21,14 @@ import org.asf.centuria.entities.objects.WorldObjectPositionInfo;
 import org.asf.centuria.entities.trading.Trade;
 import org.asf.centuria.entities.uservars.UserVarValue;
 import org.asf.centuria.enums.objects.WorldObjectMoverNodeType;
+import org.asf.centuria.interactions.NetworkedObjects;
+import org.asf.centuria.interactions.dataobjects.NetworkedObject;
 import org.asf.centuria.interactions.dataobjects.StateInfo;
 import org.asf.centuria.interactions.groupobjects.GroupObject;
 import org.asf.centuria.interactions.modules.QuestManager;
 import org.asf.centuria.minigames.AbstractMinigame;
 import org.asf.centuria.networking.gameserver.GameServer;
+import org.asf.centuria.networking.gameserver.InterestManager;
 import org.asf.centuria.networking.smartfox.SmartfoxClient;
 import org.asf.centuria.packets.xt.gameserver.avatar.AvatarObjectInfoPacket;
 import org.asf.centuria.packets.xt.gameserver.object.ObjectDeletePacket;
@@ -30,6 +36,8 @@ import org.asf.centuria.packets.xt.gameserver.object.ObjectUpdatePacket;
 import org.asf.centuria.packets.xt.gameserver.relationship.RelationshipJumpToPlayerPacket;
 import org.asf.centuria.packets.xt.gameserver.room.RoomJoinPacket;
 import org.asf.centuria.social.SocialManager;
+import org.asf.centuria.util.TimerService;
+import org.asf.centuria.util.TimerService.Timeout;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -78,6 +86,13 @@ public class Player {
 	//
 	public ArrayList<String> syncBlockedPlayers = new ArrayList<String>();
 
+	/**
+	 * Lock held while movement updates of this player are sent, keeps them in order
+	 * 
+	 * @since Beta 1.5.4
+	 */
+	public final ReentrantLock syncLock = new ReentrantLock();
+
 	/**
 	 * Updates sync to hide/show blocked/unblocked players
 	 * 
@@ -117,7 +132,9 @@ public class Player {
 
 				// If the player is ingame, show this player to them
 				Player plr = blockedPlayer.getOnlinePlayerInstance();
-				if (plr != null && roomReady && plr.roomReady && plr.room.equals(room) && plr.levelID == levelID) {
+				InterestManager interest = ((GameServer) client.getServer()).getInterestManager();
+				if (plr != null && roomReady && plr.roomReady && plr.room.equals(room) && plr.levelID == levelID
+						&& (interest == null || interest.isVisible(plr, this))) {
 					syncTo(plr);
 				}
 			}
@@ -135,7 +152,14 @@ public class Player {
 	public String activeSanctuaryLook;
 	public boolean sanctuaryPreloadCompleted = false;
 
+	// Accessed by the timer thread, lock the map when using it
 	public HashMap<String, Long> respawnItems = new HashMap<String, Long>();
+	public Timeout sessionExpiryTimer;
+
+	// Cached avatar appearance and the look and name it was built from
+	private String avatarAppearance;
+	private String avatarAppearanceLook;
+	private String avatarAppearanceName;
 
 	public int pendingLookDefID = 8254;
 	public String pendingLookID = null;
@@ -152,6 +176,8 @@ public class Player {
 	public int previousLevelID = 0;
 
 	public String pendingRoom = "0";
+
+	// Use setRoom() to change rooms, the server indexes players by room
 	public String room = null;
 
 	public String respawn = null;
@@ -190,13 +216,117 @@ public class Player {
 		lastAction = 0;
 	}
 
-	public void syncTo(Player player) {
-		if (ghostMode && !player.hasModPerms || player.disableSync)
-			return; // Ghosting
+	/**
+	 * Removes this player's character from the players in its room matching a
+	 * filter
+	 * 
+	 * @since Beta 1.5.4
+	 * @param recipients Filter selecting the players to remove the character from
+	 */
+	public void destroyAt(Predicate<Player> recipients) {
+		// Delete character
+		ObjectDeletePacket packet = new ObjectDeletePacket(account.getAccountID());
+		if (((GameServer) client.getServer()).broadcastToRoom(room, packet, recipients) != 0)
+			lastAction = 0;
+	}
 
-		// Check block
-		if (!player.hasModPerms && this.syncBlockedPlayers.contains(player.account.getAccountID()))
-			return; // Do not sync to blocked players
+	/**
+	 * Marks a resource as collected and schedules its respawn
+	 * 
+	 * @since Beta 1.5.4
+	 * @param id          Object ID
+	 * @param respawnTime Time at which the resource respawns (milliseconds since
+	 *                    epoch)
+	 */
+	public void scheduleRespawn(String id, long respawnTime) {
+		synchronized (respawnItems) {
+			respawnItems.put(id, respawnTime);
+		}
+		TimerService.getInstance().schedule(() -> respawn(id, respawnTime),
+				respawnTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Clears all pending resource respawns
+	 * 
+	 * @since Beta 1.5.4
+	 */
+	public void clearRespawnItems() {
+		synchronized (respawnItems) {
+			respawnItems.clear();
+		}
+	}
+
+	private void respawn(String id, long respawnTime) {
+		synchronized (respawnItems) {
+			// Check if the resource is still waiting for this respawn
+			Long current = respawnItems.get(id);
+			if (current == null || current != respawnTime)
+				return;
+			if (!roomReady) {
+				// Try again once the player is in a room
+				TimerService.getInstance().schedule(() -> respawn(id, respawnTime), 1, TimeUnit.SECONDS);
+				return;
+			}
+			respawnItems.remove(id);
+		}
+
+		// Find object
+		NetworkedObject ent = NetworkedObjects.getObject(id);
+
+		// Respawn
+		XtWriter wr = new XtWriter();
+		wr.writeString("oi");
+		wr.writeInt(-1); // data prefix
+
+		// Object creation parameters
+		wr.writeString(id); // World object ID
+		wr.writeInt(978);
+		wr.writeString(""); // Owner ID
+
+		// Object info
+		wr.writeInt(0);
+		wr.writeLong(System.currentTimeMillis() / 1000);
+		wr.writeDouble(ent.locationInfo.position.x);
+		wr.writeDouble(ent.locationInfo.position.y);
+		wr.writeDouble(ent.locationInfo.position.z);
+		wr.writeDouble(ent.locationInfo.rotation.x);
+		wr.writeDouble(ent.locationInfo.rotation.y);
+		wr.writeDouble(ent.locationInfo.rotation.z);
+		wr.writeDouble(ent.locationInfo.rotation.w);
+		wr.add("0%0%0%0.0%0%0%0");
+		wr.writeString(""); // data suffix
+
+		if (client != null && client.isConnected())
+			client.sendPacket(wr);
+	}
+
+	/**
+	 * Moves the player to a room, keeps the server's room index up to date
+	 * 
+	 * @since Beta 1.5.4
+	 * @param room Room identifier
+	 */
+	public void setRoom(String room) {
+		GameServer server = (GameServer) client.getServer();
+		if (server.getInterestManager() != null)
+			server.getInterestManager().remove(this);
+		server.getPlayerRegistry().setRoom(this, room);
+	}
+
+	/**
+	 * Retrieves the serialized look and name written into avatar spawn packets,
+	 * built once and reused until the look or display name changes
+	 * 
+	 * @since Beta 1.5.4
+	 * @return Appearance string or null if the active look could not be found
+	 */
+	public synchronized String getAvatarAppearance() {
+		// Check the cache
+		String displayName = account.getDisplayName();
+		if (avatarAppearance != null && activeLook != null && activeLook.equals(avatarAppearanceLook)
+				&& displayName.equals(avatarAppearanceName))
+			return avatarAppearance;
 
 		// Find avatar
 		JsonArray items = account.getSaveSpecificInventory().getItem("avatars").getAsJsonArray();
@@ -210,8 +340,39 @@ public class Player {
 				}
 			}
 		}
+		if (lookObj == null)
+			return null;
+
+		// Build appearance
+		JsonObject look = lookObj.get("components").getAsJsonObject().get("AvatarLook").getAsJsonObject().get("info")
+				.getAsJsonObject();
+		avatarAppearance = AvatarObjectInfoPacket.buildAppearance(look, displayName, 0); // TODO: What is this??
+		avatarAppearanceLook = activeLook;
+		avatarAppearanceName = displayName;
+		return avatarAppearance;
+	}
+
+	/**
+	 * Clears the cached avatar appearance, called when the active look is
+	 * changed or saved
+	 * 
+	 * @since Beta 1.5.4
+	 */
+	public synchronized void invalidateAvatarAppearance() {
+		avatarAppearance = null;
+	}
+
+	public void syncTo(Player player) {
+		if (ghostMode && !player.hasModPerms || player.disableSync)
+			return; // Ghosting
 
-		if (lookObj != null) {
+		// Check block
+		if (!player.hasModPerms && this.syncBlockedPlayers.contains(player.account.getAccountID()))
+			return; // Do not sync to blocked players
+
+		// Find avatar
+		String appearance = getAvatarAppearance();
+		if (appearance != null) {
 
 			// Spawn player
 			AvatarObjectInfoPacket packet = new AvatarObjectInfoPacket();
@@ -230,10 +391,7 @@ public class Player {
 			packet.lastMove.actorActionType = lastAction;
 
 			// Look and name
-			packet.look = lookObj.get("components").getAsJsonObject().get("AvatarLook").getAsJsonObject().get("info")
-					.getAsJsonObject();
-			packet.displayName = account.getDisplayName();
-			packet.unknownValue = 0; // TODO: What is this??
+			packet.appearance = appearance;
 
 			player.client.sendPacket(packet);
 		}
@@ -305,13 +463,7 @@ public class Player {
 
 			if (isAllowed) {
 				// Sync
-				GameServer srv = (GameServer) client.getServer();
-				for (Player plr2 : srv.getPlayers()) {
-					if (plr2.room != null && player.room != null && player.room != null && plr2.room.equals(player.room)
-							&& plr2 != player) {
-						player.destroyAt(plr2);
-					}
-				}
+				player.destroyAt(plr2 -> plr2 != player);
 
 				// Assign room
 				player.roomReady = false;
@@ -350,12 +502,7 @@ public class Player {
 			Player plr = this;
 
 			// Sync
-			GameServer srv = (GameServer) client.getServer();
-			for (Player player : srv.getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-					plr.destroyAt(player);
-				}
-			}
+			plr.destroyAt(player -> player != plr);
 
 			// Assign room
 			RoomJoinPacket join = new RoomJoinPacket();
@@ -388,7 +535,7 @@ public class Player {
 			groupOjects.clear();
 
 			// Clear respawn items
-			plr.respawnItems.clear();
+			plr.clearRespawnItems();
 
 			// Log
 			Centuria.logger.debug(MarkerManager.getMarker("JOINROOM"),
@@ -424,12 +571,7 @@ public class Player {
 			Player plr = this;
 
 			// Sync
-			GameServer srv = (GameServer) client.getServer();
-			for (Player player : srv.getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-					plr.destroyAt(player);
-				}
-			}
+			plr.destroyAt(player -> player != plr);
 
 			// Assign room
 			RoomJoinPacket join = new RoomJoinPacket();
@@ -449,7 +591,7 @@ public class Player {
 			plr.targetRot = new Quaternion(targetedPlayer.lastRot.x, targetedPlayer.lastRot.y, targetedPlayer.lastRot.z,
 					targetedPlayer.lastRot.w);
 
-			plr.respawnItems.clear();
+			plr.clearRespawnItems();
 
 			// Reset quest data
 			plr.taskProgress.clear();
@@ -567,7 +709,7 @@ public class Player {
 					writer.writeInt(1); // other world
 					writer.writeString("");
 					writer.writeString(""); // data suffix
-					client.sendPacket(writer.encode());
+					client.sendPacket(writer);
 
 					if (!plr.room.equals(player.room)) {
 						// Check sanc
@@ -613,13 +755,7 @@ public class Player {
 						player.targetRot = new Quaternion(plr.lastRot.x, plr.lastRot.y, plr.lastRot.z, plr.lastRot.w);
 
 						// Sync
-						GameServer srv = (GameServer) client.getServer();
-						for (Player plr2 : srv.getPlayers()) {
-							if (plr2.room != null && player.room != null && player.room != null
-									&& plr2.room.equals(player.room) && plr2 != player) {
-								player.destroyAt(plr2);
-							}
-						}
+						player.destroyAt(plr2 -> plr2 != player);
 
 						// Assign room
 						player.roomReady = false;
@@ -642,12 +778,8 @@ public class Player {
 
 						// Broadcast sync
 						GameServer srv = (GameServer) client.getServer();
-						for (Player p : srv.getPlayers()) {
-							if (p != player && p.room != null && p.room.equals(player.room)
-									&& (!player.ghostMode || p.hasModPerms) && !p.disableSync) {
-								p.client.sendPacket(pkt);
-							}
-						}
+						srv.broadcastToRoom(player.room, pkt,
+								p -> p != player && (!player.ghostMode || p.hasModPerms) && !p.disableSync);
 					}
 					return true;
 				}
@@ -658,7 +790,7 @@ public class Player {
 			writer.writeInt(-1); // data prefix
 			writer.writeInt(0); // failure
 			writer.writeString(""); // data suffix
-			client.sendPacket(writer.encode());
+			client.sendPacket(writer);
 			return false;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -668,7 +800,7 @@ public class Player {
 			writer.writeInt(-1); // data prefix
 			writer.writeInt(0); // failure
 			writer.writeString(""); // data suffix
-			client.sendPacket(writer.encode());
+			client.sendPacket(writer);
 			return false;
 		}
 	}
@@ -0,0 +1,299 @@
+package org.asf.centuria.interactions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.asf.centuria.interactions.dataobjects.NetworkedObject;
+import org.asf.centuria.interactions.dataobjects.StateInfo;
+
+/**
+ *
+ * Pre-resolved form of a state command, built once so the interaction
+ * interpreters do not need to compare command strings or parse parameters each
+ * time a command runs. Values that fail to parse are re-parsed when used so the
+ * same exception is raised as before.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class CompiledState {
+
+	/**
+	 * State command types
+	 */
+	public static enum Command {
+
+		/**
+		 * Command 1, sets the state of an object
+		 */
+		SET_STATE,
+
+		/**
+		 * Command 3, dialogue
+		 */
+		DIALOGUE,
+
+		/**
+		 * Command 12, runs the commands of the next state and progresses
+		 */
+		PROGRESS,
+
+		/**
+		 * Command 13, decreases a counter and runs states
+		 */
+		COUNTER,
+
+		/**
+		 * Command 26, runs the states of an object
+		 */
+		RUN_STATES,
+
+		/**
+		 * Command 29, runs a random branch
+		 */
+		RANDOMIZE,
+
+		/**
+		 * Commands 35 and 84, handled by group objects
+		 */
+		GROUP_OBJECT,
+
+		/**
+		 * Command 41, gives a loot table
+		 */
+		GIVE_LOOT,
+
+		/**
+		 * Command 52, sets the state and runs all branches
+		 */
+		SET_STATE_AND_RUN,
+
+		/**
+		 * Any other command, handled by the interaction modules
+		 */
+		OTHER
+
+	}
+
+	private StateInfo state;
+
+	// Sources, used to detect changes to the state
+	private String command;
+	private String[] params;
+	private String actorId;
+	private HashMap<String, ArrayList<StateInfo>> branches;
+
+	private Command type;
+	private Integer commandId;
+	private Integer stateValue;
+	private String actorTarget;
+	private boolean sentByBranches;
+	private boolean sentByStates;
+	private Map<String, Integer> weights;
+
+	private CompiledState(StateInfo state) {
+		this.state = state;
+		command = state.command;
+		params = state.params;
+		actorId = state.actorId;
+		branches = state.branches;
+
+		// Resolve command
+		switch (command) {
+		case "1":
+			type = Command.SET_STATE;
+			break;
+		case "3":
+			type = Command.DIALOGUE;
+			break;
+		case "12":
+			type = Command.PROGRESS;
+			break;
+		case "13":
+			type = Command.COUNTER;
+			break;
+		case "26":
+			type = Command.RUN_STATES;
+			break;
+		case "29":
+			type = Command.RANDOMIZE;
+			break;
+		case "35":
+		case "84":
+			type = Command.GROUP_OBJECT;
+			break;
+		case "41":
+			type = Command.GIVE_LOOT;
+			break;
+		case "52":
+			type = Command.SET_STATE_AND_RUN;
+			break;
+		default:
+			type = Command.OTHER;
+			break;
+		}
+		commandId = parse(command);
+
+		// Commands sent to the client after running
+		if (commandId != null) {
+			int id = commandId;
+			boolean sent = id <= 20 || id == 38 || id == 81 || id == 82;
+			sentByStates = sent && !command.equals("3");
+			sentByBranches = sentByStates && !command.equals("1");
+		}
+
+		// Parameters
+		if (params != null && params.length != 0)
+			stateValue = parse(params[0]);
+		if (actorId != null && !actorId.equals("0"))
+			actorTarget = actorId;
+
+		// Branch weights for randomized branches
+		if (type == Command.RANDOMIZE && branches != null) {
+			HashMap<String, Integer> weights = new HashMap<String, Integer>();
+			for (String branch : branches.keySet()) {
+				Integer weight = parse(branch);
+				if (weight == null) {
+					weights = null;
+					break;
+				}
+				weights.put(branch, weight);
+			}
+			if (weights != null)
+				this.weights = Collections.unmodifiableMap(weights);
+		}
+	}
+
+	private static Integer parse(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Retrieves the compiled form of a state, compiling it if needed
+	 *
+	 * @param state State to compile
+	 * @return CompiledState instance
+	 */
+	public static CompiledState of(StateInfo state) {
+		CompiledState compiled = state.compiled;
+		if (compiled == null || compiled.command != state.command || compiled.params != state.params
+				|| compiled.actorId != state.actorId || compiled.branches != state.branches) {
+			compiled = new CompiledState(state);
+			state.compiled = compiled;
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles all states of an object
+	 *
+	 * @param object Object to compile the states of
+	 */
+	public static void compile(NetworkedObject object) {
+		compile(object.stateInfo);
+	}
+
+	private static void compile(HashMap<String, ArrayList<StateInfo>> branches) {
+		for (ArrayList<StateInfo> states : branches.values()) {
+			for (StateInfo state : states) {
+				of(state);
+				if (state.branches != null)
+					compile(state.branches);
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the state this was compiled from
+	 *
+	 * @return StateInfo instance
+	 */
+	public StateInfo getState() {
+		return state;
+	}
+
+	/**
+	 * Retrieves the command type
+	 *
+	 * @return Command value
+	 */
+	public Command getType() {
+		return type;
+	}
+
+	/**
+	 * Retrieves the numeric command ID
+	 *
+	 * @return Command ID
+	 * @throws NumberFormatException If the command is not numeric
+	 */
+	public int getCommandId() {
+		if (commandId == null)
+			return Integer.parseInt(state.command);
+		return commandId;
+	}
+
+	/**
+	 * Retrieves the first parameter as state number
+	 *
+	 * @return State number
+	 * @throws NumberFormatException          If the parameter is not numeric
+	 * @throws ArrayIndexOutOfBoundsException If there are no parameters
+	 */
+	public int getStateValue() {
+		if (stateValue == null)
+			return Integer.parseInt(state.params[0]);
+		return stateValue;
+	}
+
+	/**
+	 * Retrieves the object the command acts on
+	 *
+	 * @param target Interaction ID, used if the command has no actor
+	 * @return Actor object ID
+	 */
+	public String getActor(String target) {
+		if (actorTarget == null)
+			return target;
+		return actorTarget;
+	}
+
+	/**
+	 * Checks if the command is sent to the client after running
+	 *
+	 * @param fromBranches True if run from a branch, false if run from an object
+	 *                     interaction
+	 * @return True if sent to the client, false otherwise
+	 * @throws NumberFormatException If the command is not numeric
+	 */
+	public boolean isSentToClient(boolean fromBranches) {
+		// Raise the same exception as before for non-numeric commands
+		getCommandId();
+		return fromBranches ? sentByBranches : sentByStates;
+	}
+
+	/**
+	 * Retrieves the branch weights of randomized branches
+	 *
+	 * @return Map of branch IDs to weights, must not be modified
+	 * @throws NumberFormatException If a branch ID is not numeric
+	 */
+	public Map<String, Integer> getWeights() {
+		// Rebuild if the branches were changed after compiling
+		if (weights == null || !weights.keySet().equals(state.branches.keySet())) {
+			HashMap<String, Integer> weights = new HashMap<String, Integer>();
+			for (String st : state.branches.keySet()) {
+				weights.put(st, Integer.parseInt(st));
+			}
+			return weights;
+		}
+		return weights;
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.asf.centuria.interactions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.stream.Stream;
 
@@ -21,6 +22,7 @@ import org.asf.centuria.interactions.modules.ResourceCollectionModule;
 import org.asf.centuria.interactions.modules.ShopkeeperModule;
 import org.asf.centuria.interactions.modules.linearobjects.LinearObjectHandler;
 import org.asf.centuria.interactions.modules.linearobjects.LockpickItemModule;
+import org.asf.centuria.networking.smartfox.PreparedPacket;
 import org.asf.centuria.packets.xt.gameserver.quests.QuestCommandPacket;
 import org.asf.centuria.packets.xt.gameserver.quests.QuestCommandVTPacket;
 import org.asf.centuria.util.RandomSelectorUtil;
@@ -87,14 +89,8 @@ public class InteractionManager {
 	 * @param levelID Level to find interactions for
 	 */
 	public static void initInteractionsFor(Player player, int levelID) {
-		// Load object ids
-		NetworkedObjects.init();
-		ArrayList<String> ids = new ArrayList<String>();
-
-		// Find level objects
-		for (String id : NetworkedObjects.getCollectionIdsForLevel(Integer.toString(levelID))) {
-			NetworkedObjects.getObjects(id).objects.keySet().forEach(t -> ids.add(t));
-		}
+		// Find level objects, copied as modules can add objects
+		ArrayList<String> ids = new ArrayList<String>(Arrays.asList(NetworkedObjects.getObjectIdsForLevel(levelID)));
 
 		// Initialize modules
 		modules.forEach(t -> t.prepareWorld(levelID, ids, player));
@@ -112,34 +108,18 @@ public class InteractionManager {
 	 * @param levelID Level to find interactions for
 	 */
 	public static void initializeNetworkedObjects(Player player, String[] ids, int levelID) {
-		HashMap<String, NetworkedObject> data = new HashMap<String, NetworkedObject>();
-
-		// Add objects
-		for (String id : ids) {
-			data.put(id, NetworkedObjects.getObject(id));
-		}
+		// Find the pre-built packets of the level
+		LevelObjectBundle bundle = LevelObjectBundle.get(levelID, ids);
+		ArrayList<PreparedPacket> packets = new ArrayList<PreparedPacket>();
 
-		// Send init packet
-		XtWriter packet = new XtWriter();
-		packet.writeString("qs");
-		packet.writeString("-1"); // data prefix
-		packet.writeString("-1036"); // unknown
-		packet.writeString("24"); // unknown
-		packet.writeInt(data.size()); // count
-		for (String id : data.keySet()) {
-			NetworkedObject ent = data.get(id);
-			packet.writeString(id);
-			packet.writeInt(ent.primaryObjectInfo.type);
-			packet.writeInt(ent.primaryObjectInfo.defId);
-		}
-		packet.writeString(""); // data suffix
-		player.client.sendPacket(packet.encode());
+		// Init packet
+		packets.add(bundle.getObjectList());
 
 		GroupObject[] linearObjects = getActiveSpawnBehaviour().provideCurrent(levelID, player);
 		player.groupOjects.addAll(Stream.of(linearObjects).toList());
 		if (linearObjects.length != 0) {
 			// Init group objects
-			packet = new XtWriter();
+			XtWriter packet = new XtWriter();
 			packet.writeString("qsgo");
 			packet.writeString("-1"); // data prefix
 			packet.writeLong(linearObjects.length); // count
@@ -148,65 +128,39 @@ public class InteractionManager {
 				packet.writeInt(ent.type);
 			}
 			packet.writeString(""); // data suffix
-			player.client.sendPacket(packet.encode());
+			packets.add(PreparedPacket.of(packet));
 		}
 
-		// Send qcmd packets
-		for (String id : data.keySet()) {
-			NetworkedObject ent = data.get(id);
-			if (ent.stateInfo.size() == 0) {
-				// Set states
-				packet = new XtWriter();
-				packet.writeString("qcmd");
-				packet.writeString("-1"); // data prefix
-				packet.writeString("1"); // command: set state
-				packet.writeString(id); // interaction ID
-				packet.writeString("0"); // state param 0
-				packet.writeString("0"); // state param 1
-				packet.writeString("1"); // state param 2: set to substate 1
-				packet.writeString(""); // data suffix
-				player.client.sendPacket(packet.encode());
-			}
-		}
+		// Qcmd packets
+		if (bundle.getObjectStates() != null)
+			packets.add(bundle.getObjectStates());
+
+		// Send everything in one write
+		player.client.sendPacket(PreparedPacket.concat(packets));
 
 		// Initialize objects
-		for (String id : data.keySet()) {
-			NetworkedObject ent = data.get(id);
+		String[] objectIds = bundle.getIds();
+		NetworkedObject[] objects = bundle.getObjects();
+		int[] unhandled = new int[objectIds.length];
+		int unhandledCount = 0;
+		for (int i = 0; i < objectIds.length; i++) {
 			boolean handled = false;
 			for (InteractionModule mod : modules) {
-				if (mod.initializeWorldObjects(player.client, id, ent)) {
+				if (mod.initializeWorldObjects(player.client, objectIds[i], objects[i])) {
 					handled = true;
 					break;
 				}
 			}
-			if (handled)
-				continue;
-
-			// Fallback handler
-			// Spawn object
-			XtWriter wr = new XtWriter();
-			wr.writeString("oi");
-			wr.writeInt(-1); // data prefix
-
-			// Object creation parameters
-			wr.writeString(id); // World object ID
-			wr.writeInt(978);
-			wr.writeString(""); // Owner ID
-
-			// Object info
-			wr.writeInt(0);
-			wr.writeLong(System.currentTimeMillis() / 1000);
-			wr.writeDouble(ent.locationInfo.position.x);
-			wr.writeDouble(ent.locationInfo.position.y);
-			wr.writeDouble(ent.locationInfo.position.z);
-			wr.writeDouble(ent.locationInfo.rotation.x);
-			wr.writeDouble(ent.locationInfo.rotation.y);
-			wr.writeDouble(ent.locationInfo.rotation.z);
-			wr.writeDouble(ent.locationInfo.rotation.w);
-			wr.add("0%0%0%0.0%0%0%0");
-			wr.writeString(""); // data suffix
-			player.client.sendPacket(wr.encode());
+			if (!handled)
+				unhandled[unhandledCount++] = i;
 		}
+
+		// Fallback handler
+		// Spawn the remaining objects
+		PreparedPacket spawns = bundle.buildSpawns(Arrays.copyOf(unhandled, unhandledCount),
+				System.currentTimeMillis() / 1000);
+		if (spawns != null)
+			player.client.sendPacket(spawns);
 	}
 
 	/**
@@ -282,10 +236,11 @@ public class InteractionManager {
 			// Run branches
 			int branches = 0;
 			ArrayList<StateInfo> states = player.stateObjects.get(interactableId);
+			String branch = Integer.toString(state);
 			for (StateInfo st : states) {
-				if (st.branches.containsKey(Integer.toString(state))) {
-					runBranches(player, st.branches, Integer.toString(state), interactableId, object, st);
-					branches += st.branches.get(Integer.toString(state)).size();
+				if (st.branches.containsKey(branch)) {
+					runBranches(player, st.branches, branch, interactableId, object, st);
+					branches += st.branches.get(branch).size();
 				}
 			}
 			if (branches == 0 && !resetted) {
@@ -313,12 +268,11 @@ public class InteractionManager {
 			var states = branches.get(id);
 			plr.stateObjects.put(target, states);
 			for (StateInfo state : states) {
-				switch (state.command) {
-				case "1": {
+				CompiledState compiled = CompiledState.of(state);
+				switch (compiled.getType()) {
+				case SET_STATE: {
 					// Switch state
-					String t = target;
-					if (!state.actorId.equals("0"))
-						t = state.actorId;
+					String t = compiled.getActor(target);
 					Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"),
 							"Running command: 1 (set state), SET " + t + " TO " + state.params[0]);
 					// Check state
@@ -326,7 +280,7 @@ public class InteractionManager {
 
 					// Check validity
 					if (obj.stateInfo.containsKey(state.params[0])) {
-						plr.states.put(t, Integer.parseInt(state.params[0]));
+						plr.states.put(t, compiled.getStateValue());
 
 						// Build quest command
 						QuestCommandPacket packet = new QuestCommandPacket();
@@ -338,7 +292,7 @@ public class InteractionManager {
 						plr.client.sendPacket(packet);
 					} else if (obj.primaryObjectInfo.type == 7) {
 						// Counter variable
-						plr.states.put(t, Integer.parseInt(state.params[0]));
+						plr.states.put(t, compiled.getStateValue());
 
 						// Build quest command
 						QuestCommandVTPacket packet = new QuestCommandVTPacket();
@@ -351,14 +305,14 @@ public class InteractionManager {
 					}
 					break;
 				}
-				case "41": {
+				case GIVE_LOOT: {
 					// Give table
 					Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"),
 							"Running command: 41 (give loot), GIVE TABLE " + state.params[0]);
 					ResourceCollectionModule.giveLootReward(plr, state.params[0], 2, object.primaryObjectInfo.defId);
 					break;
 				}
-				case "12": {
+				case PROGRESS: {
 					// Run commands and progress
 					Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"), "Running command: 12");
 					int stateId = plr.states.getOrDefault(state.actorId, 1);
@@ -382,11 +336,9 @@ public class InteractionManager {
 
 					break;
 				}
-				case "13": {
+				case COUNTER: {
 					// Run other states and decrease counter
-					String t = target;
-					if (!state.actorId.equals("0"))
-						t = state.actorId;
+					String t = compiled.getActor(target);
 
 					// Find target
 					NetworkedObject obj = NetworkedObjects.getObject(t);
@@ -415,52 +367,40 @@ public class InteractionManager {
 
 					break;
 				}
-				case "26": {
+				case RUN_STATES: {
 					// Run states (branch-level elevation)
-					String t = target;
-					if (!state.actorId.equals("0"))
-						t = state.actorId;
+					String t = compiled.getActor(target);
 					Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"),
 							"Running command: 26 (RUN STATES), actor: " + t + ", state: " + state.params[0]);
 					NetworkedObject obj = NetworkedObjects.getObject(t);
 					runBranches(plr, obj.stateInfo, state.params[0], t, obj, state);
 					break;
 				}
-				case "52": {
+				case SET_STATE_AND_RUN: {
 					// Set state and run branches???
 					// I fr expect this implementation to come back and bite me in the future
 					// But i cant figure this quest command out
-					String t = target;
-					if (!state.actorId.equals("0"))
-						t = state.actorId;
+					String t = compiled.getActor(target);
 
 					Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"),
 							"Running command: 52 (SET STATE AND RUN BRANCHES), actor: " + t + ", state: "
 									+ state.params[0]);
-					plr.states.put(t, Integer.parseInt(state.params[0]));
+					plr.states.put(t, compiled.getStateValue());
 					for (String branch : state.branches.keySet())
 						runBranches(plr, state.branches, branch, target, object, state);
 					break;
 				}
-				case "29": {
+				case RANDOMIZE: {
 					// Randomize
 					Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"),
 							"Running command: 29 (RANDOMIZE)");
 
 					// Find object
-					String t = target;
-					if (!state.actorId.equals("0"))
-						t = state.actorId;
+					String t = compiled.getActor(target);
 					NetworkedObject obj = NetworkedObjects.getObject(t);
 
-					// Build weight map
-					HashMap<String, Integer> weights = new HashMap<String, Integer>();
-					for (String st : state.branches.keySet()) {
-						weights.put(st, Integer.parseInt(st));
-					}
-
 					// Select branch
-					String branchID = RandomSelectorUtil.selectWeighted(weights);
+					String branchID = RandomSelectorUtil.selectWeighted(compiled.getWeights());
 
 					// Run branch
 					runBranches(plr, state.branches, branchID, t, obj, state);
@@ -490,13 +430,11 @@ public class InteractionManager {
 				}
 
 				// Check if it needs to be sent to the client
-				int cmdI = Integer.parseInt(state.command);
-				if ((cmdI <= 20 || cmdI == 38 || cmdI == 81 || cmdI == 82) && !state.command.equals("3")
-						&& !state.command.equals("1")) {
+				if (compiled.isSentToClient(true)) {
 					// Build quest command
 					QuestCommandPacket packet = new QuestCommandPacket();
 					packet.id = state.actorId;
-					packet.type = cmdI;
+					packet.type = compiled.getCommandId();
 					// Parameters
 					for (String param : state.params)
 						packet.params.add(param);
@@ -527,12 +465,11 @@ public class InteractionManager {
 					.debug("Object interaction command: " + target + ", command: " + state.command + ", args: " + args);
 
 			// Handle states
-			switch (state.command) {
-			case "1": {
+			CompiledState compiled = CompiledState.of(state);
+			switch (compiled.getType()) {
+			case SET_STATE: {
 				// Switch state
-				String t = target;
-				if (!state.actorId.equals("0"))
-					t = state.actorId;
+				String t = compiled.getActor(target);
 				Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"),
 						"Running command: 1 (set state), SET " + t + " TO " + state.params[0]);
 				// Check state
@@ -540,7 +477,7 @@ public class InteractionManager {
 
 				// Check validity
 				if (obj.stateInfo.containsKey(state.params[0])) {
-					plr.states.put(t, Integer.parseInt(state.params[0]));
+					plr.states.put(t, compiled.getStateValue());
 
 					// Build quest command
 					QuestCommandPacket packet = new QuestCommandPacket();
@@ -552,7 +489,7 @@ public class InteractionManager {
 					plr.client.sendPacket(packet);
 				} else if (obj.primaryObjectInfo.type == 7) {
 					// Counter variable
-					plr.states.put(t, Integer.parseInt(state.params[0]));
+					plr.states.put(t, compiled.getStateValue());
 
 					// Build quest command
 					QuestCommandVTPacket packet = new QuestCommandVTPacket();
@@ -565,10 +502,9 @@ public class InteractionManager {
 				}
 				break;
 			}
-			case "35":
-			case "84":
+			case GROUP_OBJECT:
 				// Handled by group objects
-			case "3":
+			case DIALOGUE:
 				// Build quest command
 				XtWriter pk = new XtWriter();
 				pk.writeString("qcmd");
@@ -582,17 +518,15 @@ public class InteractionManager {
 				for (String param : state.params)
 					pk.writeString(param);
 				pk.writeString(""); // Data suffix
-				plr.client.sendPacket(pk.encode());
+				plr.client.sendPacket(pk);
 				Centuria.logger.debug("QCMD sent: " + pk.encode());
 				break;
-			case "41":
+			case GIVE_LOOT:
 				// Not allowed
 				break;
-			case "13": {
+			case COUNTER: {
 				// Run other states and decrease counter
-				String t = target;
-				if (!state.actorId.equals("0"))
-					t = state.actorId;
+				String t = compiled.getActor(target);
 
 				// Find target
 				NetworkedObject obj = NetworkedObjects.getObject(t);
@@ -621,7 +555,7 @@ public class InteractionManager {
 
 				break;
 			}
-			case "12": {
+			case PROGRESS: {
 				// Run commands and progress
 				Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"), "Running command: 12");
 				int stateId = plr.states.getOrDefault(state.actorId, 1);
@@ -637,11 +571,9 @@ public class InteractionManager {
 
 				break;
 			}
-			case "26": {
+			case RUN_STATES: {
 				// Run states (branch-level elevation)
-				String t = target;
-				if (!state.actorId.equals("0"))
-					t = state.actorId;
+				String t = compiled.getActor(target);
 				Centuria.logger.debug(MarkerManager.getMarker("INTERACTION COMMANDS"),
 						"Running command: 26 (BRANCH EVAL), actor: " + t + ", state: " + state.params[0]);
 				NetworkedObject obj = NetworkedObjects.getObject(t);
@@ -650,7 +582,7 @@ public class InteractionManager {
 				boolean handled = false;
 				for (InteractionModule mod : modules) {
 					// Check if the interaction is not blocked
-					int v = mod.isDataRequestValid(plr, t, obj, Integer.parseInt(state.params[0]));
+					int v = mod.isDataRequestValid(plr, t, obj, compiled.getStateValue());
 					if (v != -1)
 						handled = true;
 					if (v == 0)
@@ -687,12 +619,11 @@ public class InteractionManager {
 			}
 
 			// Check if it needs to be sent to the client
-			int cmdI = Integer.parseInt(state.command);
-			if ((cmdI <= 20 || cmdI == 38 || cmdI == 81 || cmdI == 82) && !state.command.equals("3")) {
+			if (compiled.isSentToClient(false)) {
 				// Build quest command
 				QuestCommandPacket packet = new QuestCommandPacket();
 				packet.id = state.actorId;
-				packet.type = cmdI;
+				packet.type = compiled.getCommandId();
 				// Parameters
 				for (String param : state.params)
 					packet.params.add(param);
@@ -0,0 +1,211 @@
+package org.asf.centuria.interactions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asf.centuria.data.XtWriter;
+import org.asf.centuria.interactions.dataobjects.NetworkedObject;
+import org.asf.centuria.networking.smartfox.PreparedPacket;
+
+/**
+ *
+ * Pre-built networked object packets of a level, the packets that are the same
+ * for every player joining the level are encoded once and reused
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class LevelObjectBundle {
+
+	private static Map<Integer, LevelObjectBundle> bundles = new ConcurrentHashMap<Integer, LevelObjectBundle>();
+
+	private String[] sourceIds;
+
+	private String[] ids;
+	private NetworkedObject[] objects;
+
+	private PreparedPacket objectList;
+	private PreparedPacket objectStates;
+
+	// Fallback spawn packets, split around the server time
+	private byte[][] spawnPrefixes;
+	private byte[][] spawnSuffixes;
+
+	private LevelObjectBundle(String[] sourceIds) {
+		this.sourceIds = sourceIds;
+
+		// Find objects
+		HashMap<String, NetworkedObject> data = new HashMap<String, NetworkedObject>();
+		for (String id : sourceIds) {
+			data.put(id, NetworkedObjects.getObject(id));
+		}
+		ids = data.keySet().toArray(t -> new String[t]);
+		objects = new NetworkedObject[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			objects[i] = data.get(ids[i]);
+
+		// Build object list
+		XtWriter packet = new XtWriter();
+		packet.writeString("qs");
+		packet.writeString("-1"); // data prefix
+		packet.writeString("-1036"); // unknown
+		packet.writeString("24"); // unknown
+		packet.writeInt(ids.length); // count
+		for (int i = 0; i < ids.length; i++) {
+			packet.writeString(ids[i]);
+			packet.writeInt(objects[i].primaryObjectInfo.type);
+			packet.writeInt(objects[i].primaryObjectInfo.defId);
+		}
+		packet.writeString(""); // data suffix
+		objectList = PreparedPacket.of(packet);
+
+		// Build qcmd packets
+		ArrayList<PreparedPacket> states = new ArrayList<PreparedPacket>();
+		for (int i = 0; i < ids.length; i++) {
+			if (objects[i].stateInfo.size() == 0) {
+				// Set states
+				packet = new XtWriter();
+				packet.writeString("qcmd");
+				packet.writeString("-1"); // data prefix
+				packet.writeString("1"); // command: set state
+				packet.writeString(ids[i]); // interaction ID
+				packet.writeString("0"); // state param 0
+				packet.writeString("0"); // state param 1
+				packet.writeString("1"); // state param 2: set to substate 1
+				packet.writeString(""); // data suffix
+				states.add(PreparedPacket.of(packet));
+			}
+		}
+		if (states.size() != 0)
+			objectStates = PreparedPacket.concat(states);
+
+		// Build spawn packets
+		spawnPrefixes = new byte[ids.length][];
+		spawnSuffixes = new byte[ids.length][];
+		for (int i = 0; i < ids.length; i++) {
+			NetworkedObject ent = objects[i];
+			if (ent.locationInfo == null)
+				continue;
+			XtWriter wr = new XtWriter();
+			wr.writeString("oi");
+			wr.writeInt(-1); // data prefix
+
+			// Object creation parameters
+			wr.writeString(ids[i]); // World object ID
+			wr.writeInt(978);
+			wr.writeString(""); // Owner ID
+
+			// Object info
+			wr.writeInt(0);
+			String prefix = wr.encode() + "%";
+			wr.writeLong(0); // Server time, written on send
+			wr.writeDouble(ent.locationInfo.position.x);
+			wr.writeDouble(ent.locationInfo.position.y);
+			wr.writeDouble(ent.locationInfo.position.z);
+			wr.writeDouble(ent.locationInfo.rotation.x);
+			wr.writeDouble(ent.locationInfo.rotation.y);
+			wr.writeDouble(ent.locationInfo.rotation.z);
+			wr.writeDouble(ent.locationInfo.rotation.w);
+			wr.add("0%0%0%0.0%0%0%0");
+			wr.writeString(""); // data suffix
+			String suffix = wr.encode().substring(prefix.length() + 1);
+
+			spawnPrefixes[i] = prefix.getBytes(StandardCharsets.UTF_8);
+			byte[] suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+			spawnSuffixes[i] = Arrays.copyOf(suffixBytes, suffixBytes.length + 1);
+		}
+	}
+
+	/**
+	 * Retrieves the bundle of a level, builds it if needed
+	 *
+	 * @param levelID Level ID
+	 * @param ids     Object UUIDs of the level
+	 * @return LevelObjectBundle instance
+	 */
+	public static LevelObjectBundle get(int levelID, String[] ids) {
+		LevelObjectBundle bundle = bundles.get(levelID);
+		if (bundle == null || !Arrays.equals(bundle.sourceIds, ids)) {
+			// Build the bundle, rebuilt if the level objects changed
+			bundle = new LevelObjectBundle(ids);
+			bundles.put(levelID, bundle);
+		}
+		return bundle;
+	}
+
+	/**
+	 * Retrieves the object UUIDs in the order used by the bundle
+	 *
+	 * @return Array of object UUIDs, must not be modified
+	 */
+	public String[] getIds() {
+		return ids;
+	}
+
+	/**
+	 * Retrieves the objects in the order used by the bundle
+	 *
+	 * @return Array of NetworkedObject instances, must not be modified
+	 */
+	public NetworkedObject[] getObjects() {
+		return objects;
+	}
+
+	/**
+	 * Retrieves the object list packet (qs)
+	 *
+	 * @return PreparedPacket instance
+	 */
+	public PreparedPacket getObjectList() {
+		return objectList;
+	}
+
+	/**
+	 * Retrieves the initial state packets of objects without states (qcmd)
+	 *
+	 * @return PreparedPacket instance or null if there are none
+	 */
+	public PreparedPacket getObjectStates() {
+		return objectStates;
+	}
+
+	/**
+	 * Builds the fallback spawn packets (oi) for objects
+	 *
+	 * @param indices Indices of the objects to spawn
+	 * @param time    Server time in seconds
+	 * @return PreparedPacket instance or null if there is nothing to spawn
+	 */
+	public PreparedPacket buildSpawns(int[] indices, long time) {
+		byte[] timeBytes = Long.toString(time).getBytes(StandardCharsets.UTF_8);
+
+		// Calculate size
+		int length = 0;
+		for (int i : indices) {
+			if (spawnPrefixes[i] != null)
+				length += spawnPrefixes[i].length + timeBytes.length + spawnSuffixes[i].length;
+		}
+		if (length == 0)
+			return null;
+
+		// Build packets
+		byte[] frames = new byte[length];
+		int offset = 0;
+		for (int i : indices) {
+			if (spawnPrefixes[i] == null)
+				continue;
+			System.arraycopy(spawnPrefixes[i], 0, frames, offset, spawnPrefixes[i].length);
+			offset += spawnPrefixes[i].length;
+			System.arraycopy(timeBytes, 0, frames, offset, timeBytes.length);
+			offset += timeBytes.length;
+			System.arraycopy(spawnSuffixes[i], 0, frames, offset, spawnSuffixes[i].length);
+			offset += spawnSuffixes[i].length;
+		}
+		return PreparedPacket.wrap(frames);
+	}
+
+}
@@ -0,0 +1,315 @@
+package org.asf.centuria.interactions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.asf.centuria.interactions.dataobjects.LocationInfo;
+import org.asf.centuria.interactions.dataobjects.NetworkedObject;
+import org.asf.centuria.interactions.dataobjects.ObjectCollection;
+import org.asf.centuria.interactions.dataobjects.ObjectInfo;
+import org.asf.centuria.interactions.dataobjects.PositionInfo;
+import org.asf.centuria.interactions.dataobjects.RotationInfo;
+import org.asf.centuria.interactions.dataobjects.StateInfo;
+
+/**
+ *
+ * Binary snapshot of the loaded networked object definitions, saved after the
+ * object JSON files are parsed and memory-mapped on the next start if the hash
+ * of the source files still matches
+ *
+ * @since Beta 1.5.4
+ *
+ */
+class NetworkedObjectSnapshot {
+
+	private static final int MAGIC = 0x434E4F53;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8 + 32;
+
+	/**
+	 * Loads a snapshot into the object maps, the maps are only modified if the
+	 * snapshot is loaded successfully
+	 *
+	 * @param file             Snapshot file
+	 * @param hash             SHA-256 hash of the source files
+	 * @param objects          Object collection map to load into
+	 * @param levelOverrideMap Level override map to load into
+	 * @param overrideMap      Override map to load into
+	 * @param objectIdMap      Object ID map to load into
+	 * @return True if loaded, false if the snapshot is missing, outdated or
+	 *         corrupted
+	 */
+	public static boolean load(File file, byte[] hash, Map<String, ObjectCollection> objects,
+			Map<String, ArrayList<String>> levelOverrideMap, Map<String, ArrayList<String>> overrideMap,
+			Map<String, String> objectIdMap) {
+		if (!file.exists())
+			return false;
+
+		HashMap<String, ObjectCollection> loadedObjects = new HashMap<String, ObjectCollection>();
+		HashMap<String, ArrayList<String>> loadedLevelOverrides = new HashMap<String, ArrayList<String>>();
+		HashMap<String, ArrayList<String>> loadedOverrides = new HashMap<String, ArrayList<String>>();
+		HashMap<String, String> loadedObjectIds = new HashMap<String, String>();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			// Check the header before mapping the file
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining())
+				if (channel.read(header) == -1)
+					return false;
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+				return false;
+			byte[] snapshotHash = new byte[32];
+			header.get(snapshotHash);
+			if (!Arrays.equals(hash, snapshotHash))
+				return false;
+
+			// Read the snapshot
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+					channel.size() - HEADER_SIZE);
+			int collections = data.getInt();
+			for (int i = 0; i < collections; i++) {
+				String id = readString(data);
+				ObjectCollection collection = new ObjectCollection();
+				collection.name = readString(data);
+				int count = data.getInt();
+				for (int i2 = 0; i2 < count; i2++) {
+					String uuid = readString(data);
+					NetworkedObject obj = readObject(data);
+					obj.containerId = id;
+					collection.objects.put(uuid, obj);
+				}
+				loadedObjects.put(id, collection);
+			}
+			readListMap(data, loadedLevelOverrides);
+			readListMap(data, loadedOverrides);
+			int objectIds = data.getInt();
+			for (int i = 0; i < objectIds; i++)
+				loadedObjectIds.put(readString(data), readString(data));
+			if (data.hasRemaining())
+				return false;
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			return false;
+		}
+
+		// Apply
+		objects.putAll(loadedObjects);
+		levelOverrideMap.putAll(loadedLevelOverrides);
+		overrideMap.putAll(loadedOverrides);
+		objectIdMap.putAll(loadedObjectIds);
+		return true;
+	}
+
+	/**
+	 * Saves a snapshot of the object maps
+	 *
+	 * @param file             Snapshot file
+	 * @param hash             SHA-256 hash of the source files
+	 * @param objects          Object collection map
+	 * @param levelOverrideMap Level override map
+	 * @param overrideMap      Override map
+	 * @param objectIdMap      Object ID map
+	 * @throws IOException If saving fails
+	 */
+	public static void save(File file, byte[] hash, Map<String, ObjectCollection> objects,
+			Map<String, ArrayList<String>> levelOverrideMap, Map<String, ArrayList<String>> overrideMap,
+			Map<String, String> objectIdMap) throws IOException {
+		if (file.getAbsoluteFile().getParentFile() != null)
+			file.getAbsoluteFile().getParentFile().mkdirs();
+
+		// Write to a temporary file so a crash cannot leave a partial snapshot
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.write(hash);
+
+			out.writeInt(objects.size());
+			for (String id : objects.keySet()) {
+				ObjectCollection collection = objects.get(id);
+				writeString(out, id);
+				writeString(out, collection.name);
+				out.writeInt(collection.objects.size());
+				for (String uuid : collection.objects.keySet()) {
+					writeString(out, uuid);
+					writeObject(out, collection.objects.get(uuid));
+				}
+			}
+			writeListMap(out, levelOverrideMap);
+			writeListMap(out, overrideMap);
+			out.writeInt(objectIdMap.size());
+			for (String id : objectIdMap.keySet()) {
+				writeString(out, id);
+				writeString(out, objectIdMap.get(id));
+			}
+		}
+
+		// Replace the old snapshot
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static NetworkedObject readObject(ByteBuffer data) {
+		NetworkedObject obj = new NetworkedObject();
+		obj.objectName = readString(data);
+		obj.localType = data.getInt();
+		obj.primaryObjectInfo = readObjectInfo(data);
+		obj.subObjectInfo = readObjectInfo(data);
+		if (data.get() != 0) {
+			LocationInfo locationInfo = new LocationInfo();
+			locationInfo.position = new PositionInfo();
+			locationInfo.rotation = new RotationInfo();
+			locationInfo.position.x = data.getDouble();
+			locationInfo.position.y = data.getDouble();
+			locationInfo.position.z = data.getDouble();
+			locationInfo.rotation.x = data.getDouble();
+			locationInfo.rotation.y = data.getDouble();
+			locationInfo.rotation.z = data.getDouble();
+			locationInfo.rotation.w = data.getDouble();
+			obj.locationInfo = locationInfo;
+		}
+		readBranches(data, obj.stateInfo);
+		return obj;
+	}
+
+	private static void writeObject(DataOutputStream out, NetworkedObject obj) throws IOException {
+		writeString(out, obj.objectName);
+		out.writeInt(obj.localType);
+		writeObjectInfo(out, obj.primaryObjectInfo);
+		writeObjectInfo(out, obj.subObjectInfo);
+		if (obj.locationInfo != null) {
+			out.writeByte(1);
+			out.writeDouble(obj.locationInfo.position.x);
+			out.writeDouble(obj.locationInfo.position.y);
+			out.writeDouble(obj.locationInfo.position.z);
+			out.writeDouble(obj.locationInfo.rotation.x);
+			out.writeDouble(obj.locationInfo.rotation.y);
+			out.writeDouble(obj.locationInfo.rotation.z);
+			out.writeDouble(obj.locationInfo.rotation.w);
+		} else
+			out.writeByte(0);
+		writeBranches(out, obj.stateInfo);
+	}
+
+	private static ObjectInfo readObjectInfo(ByteBuffer data) {
+		if (data.get() == 0)
+			return null;
+		ObjectInfo info = new ObjectInfo();
+		info.defId = data.getInt();
+		info.type = data.getInt();
+		return info;
+	}
+
+	private static void writeObjectInfo(DataOutputStream out, ObjectInfo info) throws IOException {
+		if (info == null) {
+			out.writeByte(0);
+			return;
+		}
+		out.writeByte(1);
+		out.writeInt(info.defId);
+		out.writeInt(info.type);
+	}
+
+	private static void readBranches(ByteBuffer data, HashMap<String, ArrayList<StateInfo>> output) {
+		int branches = data.getInt();
+		for (int i = 0; i < branches; i++) {
+			String branch = readString(data);
+			int count = data.getInt();
+			ArrayList<StateInfo> states = new ArrayList<StateInfo>(count);
+			for (int i2 = 0; i2 < count; i2++) {
+				StateInfo info = new StateInfo();
+				info.command = readString(data);
+				info.actorId = readString(data);
+				info.params = new String[data.getInt()];
+				for (int i3 = 0; i3 < info.params.length; i3++)
+					info.params[i3] = readString(data);
+				readBranches(data, info.branches);
+				states.add(info);
+			}
+			output.put(branch, states);
+		}
+	}
+
+	private static void writeBranches(DataOutputStream out, HashMap<String, ArrayList<StateInfo>> branches)
+			throws IOException {
+		out.writeInt(branches.size());
+		for (String branch : branches.keySet()) {
+			writeString(out, branch);
+			List<StateInfo> states = branches.get(branch);
+			out.writeInt(states.size());
+			for (StateInfo info : states) {
+				writeString(out, info.command);
+				writeString(out, info.actorId);
+				out.writeInt(info.params.length);
+				for (String param : info.params)
+					writeString(out, param);
+				writeBranches(out, info.branches);
+			}
+		}
+	}
+
+	private static void readListMap(ByteBuffer data, Map<String, ArrayList<String>> output) {
+		int count = data.getInt();
+		for (int i = 0; i < count; i++) {
+			String key = readString(data);
+			int length = data.getInt();
+			ArrayList<String> values = new ArrayList<String>(length);
+			for (int i2 = 0; i2 < length; i2++)
+				values.add(readString(data));
+			output.put(key, values);
+		}
+	}
+
+	private static void writeListMap(DataOutputStream out, Map<String, ArrayList<String>> map) throws IOException {
+		out.writeInt(map.size());
+		for (String key : map.keySet()) {
+			writeString(out, key);
+			List<String> values = map.get(key);
+			out.writeInt(values.size());
+			for (String value : values)
+				writeString(out, value);
+		}
+	}
+
+	private static String readString(ByteBuffer data) {
+		int length = data.getInt();
+		if (length == -1)
+			return null;
+		if (length < 0 || length > data.remaining())
+			throw new IllegalArgumentException("Invalid string length");
+		byte[] bytes = new byte[length];
+		data.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		if (str == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+}
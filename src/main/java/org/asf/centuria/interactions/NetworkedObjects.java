@@ -5,8 +5,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.logging.log4j.MarkerManager;
 import org.asf.centuria.Centuria;
@@ -30,56 +34,144 @@ import com.google.gson.JsonParser;
 
 public class NetworkedObjects {
 
-	private static boolean isReady = false;
+	private static volatile boolean isReady = false;
 
 	private static HashMap<String, ObjectCollection> objects = new HashMap<String, ObjectCollection>();
 	private static HashMap<String, ArrayList<String>> levelOverrideMap = new HashMap<String, ArrayList<String>>();
 	private static HashMap<String, ArrayList<String>> overrideMap = new HashMap<String, ArrayList<String>>();
 	private static HashMap<String, String> objectIdMap = new HashMap<String, String>();
 
-	public static void init() {
+	private static final File SNAPSHOT_FILE = new File("cache/networkedobjects.bin");
+	private static final String[] NO_OBJECTS = new String[0];
+	private static Map<Integer, String[]> levelIndex = Map.of();
+
+	private static class ObjectSource {
+		public String name;
+		public String owner;
+		public byte[] data;
+
+		public ObjectSource(String name, String owner, byte[] data) {
+			this.name = name;
+			this.owner = owner;
+			this.data = data;
+		}
+	}
+
+	public static synchronized void init() {
 		if (isReady)
 			return;
 
+		long start = System.currentTimeMillis();
+		ArrayList<ObjectSource> sources = new ArrayList<ObjectSource>();
+		byte[] hash;
 		try {
 			// Load the helper
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("networkedobjects.json");
-			JsonObject helper = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8")).getAsJsonObject();
-			strm.close();
-			loadObjects(helper);
+			sources.add(new ObjectSource("networkedobjects.json", null, readResource("networkedobjects.json")));
 
 			// Load transformers
-			strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("objecttransformers/index.json");
-			JsonArray transformers = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8")).getAsJsonArray();
-			strm.close();
+			JsonArray transformers = JsonParser
+					.parseString(new String(readResource("objecttransformers/index.json"), "UTF-8"))
+					.getAsJsonArray();
 			for (JsonElement el : transformers) {
-				strm = InventoryItemDownloadPacket.class.getClassLoader()
-						.getResourceAsStream("objecttransformers/" + el.getAsString());
-				helper = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8")).getAsJsonObject();
-				strm.close();
-				loadObjects(helper);
+				String name = "objecttransformers/" + el.getAsString();
+				sources.add(new ObjectSource(name, null, readResource(name)));
 			}
 
 			// Load module transformers
 			for (ICenturiaModule module : ModuleManager.getInstance().getAllModules()) {
-				loadTransformers(module.getClass());
+				loadTransformers(module.getClass(), sources);
+			}
+
+			// Hash the sources
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (ObjectSource source : sources) {
+				digest.update((source.name + "\0" + source.owner + "\0" + source.data.length + "\0")
+						.getBytes(StandardCharsets.UTF_8));
+				digest.update(source.data);
 			}
-		} catch (IOException e) {
+			hash = digest.digest();
+		} catch (IOException | NoSuchAlgorithmException e) {
 			// This is very bad, should not start allow the server to continue otherwise
 			// things will break HARD
 			throw new RuntimeException(e);
 		}
 
+		// Load the snapshot if the sources did not change, otherwise parse the sources
+		if (NetworkedObjectSnapshot.load(SNAPSHOT_FILE, hash, objects, levelOverrideMap, overrideMap,
+				objectIdMap)) {
+			Centuria.logger.info(MarkerManager.getMarker("INTERACTIONS"), "Loaded networked objects from snapshot in "
+					+ (System.currentTimeMillis() - start) + "ms");
+		} else {
+			for (ObjectSource source : sources) {
+				if (source.owner == null) {
+					loadObjects(parseSource(source));
+					continue;
+				}
+
+				// Module transformers are allowed to fail
+				try {
+					loadObjects(parseSource(source));
+				} catch (Exception e) {
+					Centuria.logger.error(MarkerManager.getMarker("SHOPS"),
+							"Transformer failed to load: " + source.name + " (" + source.owner + ")", e);
+				}
+			}
+			try {
+				NetworkedObjectSnapshot.save(SNAPSHOT_FILE, hash, objects, levelOverrideMap, overrideMap,
+						objectIdMap);
+			} catch (IOException e) {
+				Centuria.logger.warn(MarkerManager.getMarker("INTERACTIONS"),
+						"Failed to save the networked object snapshot", e);
+			}
+			Centuria.logger.info(MarkerManager.getMarker("INTERACTIONS"),
+					"Loaded networked objects in " + (System.currentTimeMillis() - start) + "ms");
+		}
+
 		// Dispatch event
 		EventBus.getInstance()
 				.dispatchEvent(new ObjectDefinitionInitEvent(objects, levelOverrideMap, overrideMap, objectIdMap));
 
+		// Build the level index
+		HashMap<Integer, String[]> index = new HashMap<Integer, String[]>();
+		for (String level : levelOverrideMap.keySet()) {
+			int levelID;
+			try {
+				levelID = Integer.parseInt(level);
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			ArrayList<String> ids = new ArrayList<String>();
+			for (String id : getCollectionIdsForLevel(level)) {
+				ObjectCollection collection = objects.get(id);
+				if (collection != null)
+					ids.addAll(collection.objects.keySet());
+			}
+			index.put(levelID, ids.toArray(t -> new String[t]));
+		}
+		levelIndex = Map.copyOf(index);
+
+		// Compile the states
+		for (ObjectCollection collection : objects.values())
+			for (NetworkedObject object : collection.objects.values())
+				CompiledState.compile(object);
+
 		isReady = true;
 	}
 
-	private static void loadTransformers(Class<?> cls) {
+	private static byte[] readResource(String name) throws IOException {
+		InputStream strm = InventoryItemDownloadPacket.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return strm.readAllBytes();
+		} finally {
+			strm.close();
+		}
+	}
+
+	private static JsonObject parseSource(ObjectSource source) {
+		return JsonParser.parseString(new String(source.data, StandardCharsets.UTF_8)).getAsJsonObject();
+	}
+
+	private static void loadTransformers(Class<?> cls, ArrayList<ObjectSource> sources) {
 		URL source = cls.getProtectionDomain().getCodeSource().getLocation();
 
 		// Generate a base URL
@@ -103,17 +195,14 @@ public class NetworkedObjects {
 			JsonArray index = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8")).getAsJsonArray();
 			strm.close();
 
-			// Load all transformers
+			// Read all transformers
 			for (JsonElement ele : index) {
 				try {
 					// Find the transformer document
 					strm = new URL(baseURL + "objecttransformers/" + ele.getAsString()).openStream();
-					JsonObject transformer = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8"))
-							.getAsJsonObject();
+					byte[] data = strm.readAllBytes();
 					strm.close();
-
-					// Load transformer
-					loadObjects(transformer);
+					sources.add(new ObjectSource(ele.getAsString(), fileName, data));
 				} catch (Exception e) {
 					Centuria.logger.error(MarkerManager.getMarker("SHOPS"),
 							"Transformer failed to load: " + ele.getAsString() + " (" + fileName + ")", e);
@@ -283,6 +372,21 @@ public class NetworkedObjects {
 		return ids.toArray(t -> new String[t]);
 	}
 
+	/**
+	 * Retrieves the IDs of all objects in a level, built once after the object
+	 * definitions are loaded
+	 * 
+	 * @param levelID Level ID
+	 * @return Array of object UUIDs, shared between callers so it must not be
+	 *         modified
+	 * @since Beta 1.5.4
+	 */
+	public static String[] getObjectIdsForLevel(int levelID) {
+		if (!isReady)
+			init();
+		return levelIndex.getOrDefault(levelID, NO_OBJECTS);
+	}
+
 	/**
 	 * Retrieves object collection IDs by level override
 	 * 
@@ -296,6 +400,17 @@ public class NetworkedObjects {
 		return overrideMap.get(id).toArray(t -> new String[t]);
 	}
 
+	/**
+	 * Retrieves the IDs of all object collections
+	 * 
+	 * @return Array of collection ID strings
+	 * @since Beta 1.5.4
+	 */
+	public static String[] getCollectionIds() {
+		init();
+		return objects.keySet().toArray(t -> new String[t]);
+	}
+
 	/**
 	 * Retrieves object collections by ID
 	 * 
@@ -3,6 +3,8 @@ package org.asf.centuria.interactions.dataobjects;
 import java.util.ArrayList;
 import java.util.HashMap;
 
+import org.asf.centuria.interactions.CompiledState;
+
 public class StateInfo {
 
 	public String command;
@@ -10,4 +12,7 @@ public class StateInfo {
 	public String actorId;
 	public HashMap<String, ArrayList<StateInfo>> branches = new HashMap<String, ArrayList<StateInfo>>();
 
+	// Compiled form, see CompiledState.of
+	public CompiledState compiled;
+
 }
@@ -483,7 +483,7 @@ public class ResourceCollectionModule extends InteractionModule {
 						// Set harvest count and timestamp
 						player.account.getSaveSpecificInventory().getInteractionMemory().harvested(player.levelID, id);
 						player.account.getSaveSpecificInventory().getInteractionMemory().saveTo(player.client);
-						player.respawnItems.put(id, (long) (System.currentTimeMillis() + (def.respawnSeconds * 1000)));
+						player.scheduleRespawn(id, (long) (System.currentTimeMillis() + (def.respawnSeconds * 1000)));
 						ev.tags.add("map:" + manName(player));
 
 						// Dispatch XP event
@@ -520,7 +520,7 @@ public class ResourceCollectionModule extends InteractionModule {
 				// Set unlocked and timestamp
 				player.account.getSaveSpecificInventory().getInteractionMemory().unlocked(player.levelID, id);
 				player.account.getSaveSpecificInventory().getInteractionMemory().saveTo(player.client);
-				player.respawnItems.put(id, (long) (System.currentTimeMillis() + (def.respawnSeconds * 1000)));
+				player.scheduleRespawn(id, (long) (System.currentTimeMillis() + (def.respawnSeconds * 1000)));
 				return 1;
 			}
 		}
@@ -560,7 +560,7 @@ public class ResourceCollectionModule extends InteractionModule {
 								player.account.getSaveSpecificInventory().getInteractionMemory().saveTo(player.client);
 
 								// Make sure the resource will be respawned
-								player.respawnItems.put(id,
+								player.scheduleRespawn(id,
 										(long) (System.currentTimeMillis() + (respawnSeconds * 1000)));
 								return 1;
 							}
@@ -829,7 +829,7 @@ public class ResourceCollectionModule extends InteractionModule {
 					// Check harvest count
 					if (harvested >= def.interactionsBeforeDespawn) {
 						pState = 2;
-						player.respawnItems.put(id, (long) (lastHarvest + (def.respawnSeconds * 1000)));
+						player.scheduleRespawn(id, (long) (lastHarvest + (def.respawnSeconds * 1000)));
 					}
 				}
 			}
@@ -854,7 +854,7 @@ public class ResourceCollectionModule extends InteractionModule {
 						|| player.account.getSaveSpecificInventory().getInteractionMemory()
 								.hasTreasureBeenUnlocked(player.pendingLevelID, id)) {
 					pState = 2;
-					player.respawnItems.put(id, (long) (lasUnlock + (def.respawnSeconds * 1000)));
+					player.scheduleRespawn(id, (long) (lasUnlock + (def.respawnSeconds * 1000)));
 				}
 			}
 		}
@@ -892,7 +892,7 @@ public class ResourceCollectionModule extends InteractionModule {
 												.getSaveSpecificInventory().getInteractionMemory()
 												.hasTreasureBeenUnlocked(player.pendingLevelID, id)) {
 									pState = 2;
-									player.respawnItems.put(id, (long) (lasUnlock + (respawnSeconds * 1000)));
+									player.scheduleRespawn(id, (long) (lasUnlock + (respawnSeconds * 1000)));
 								}
 							}
 						}
@@ -924,7 +924,7 @@ public class ResourceCollectionModule extends InteractionModule {
 			wr.writeDouble(obj.locationInfo.rotation.w);
 			wr.add("0%0%0%0.0%0%0%" + pState);
 			wr.writeString(""); // data suffix
-			client.sendPacket(wr.encode());
+			client.sendPacket(wr);
 		}
 
 		return pState != -1;
@@ -1,14 +1,17 @@
 package org.asf.centuria.networking.chatserver;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.MarkerManager;
 import org.asf.centuria.Centuria;
@@ -19,7 +22,12 @@ import org.asf.centuria.modules.eventbus.EventBus;
 import org.asf.centuria.modules.events.chat.ChatLoginEvent;
 import org.asf.centuria.networking.chatserver.networking.AbstractChatPacket;
 import org.asf.centuria.networking.gameserver.GameServer;
+import org.asf.centuria.security.TokenVerifier;
+import org.asf.centuria.security.VerifiedToken;
+import org.asf.centuria.util.OutboundQueue;
 import org.asf.centuria.util.TaskThread;
+import org.asf.centuria.util.TimerService;
+import org.asf.centuria.util.TimerService.Timeout;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -67,52 +75,60 @@ public class ChatClient {
 
 	// Anti-hack
 	public int banCounter = 0;
+	private Timeout antiHackTimer;
 
 	// Room lock
 	public boolean isReady = false;
 
 	private TaskThread taskThread;
+	private OutputStream output;
+	private OutboundQueue outboundQueue = new OutboundQueue(() -> {
+		// Close the socket, the client thread handles the disconnect
+		Socket client = this.client;
+		Centuria.logger.warn(MarkerManager.getMarker("CHAT"),
+				"Disconnecting " + client + ": client is not reading packets fast enough");
+		try {
+			if (client != null)
+				client.close();
+		} catch (IOException e) {
+		}
+	});
 
 	public ChatClient(Socket client, ChatServer server) {
 		this.client = client;
 		this.server = server;
 
-		taskThread = new TaskThread(client.toString());
-		taskThread.start();
-
-		reader = new JsonReader(new Reader() {
-
-			@Override
-			public int read(char[] cbuf, int off, int len) throws IOException {
-				byte[] data = new byte[cbuf.length];
-				int l = client.getInputStream().read(data);
-				for (int i = 0; i < l; i++) {
-					cbuf[off + i] = (char) data[i];
-				}
-				return l;
-			}
-
-			@Override
-			public void close() throws IOException {
+		taskThread = new TaskThread(client.toString(), () -> {
+			// Flush once for all packets sent in this batch
+			try {
+				if (output != null)
+					output.flush();
+			} catch (Exception e) {
 			}
-
 		});
+		try {
+			output = new BufferedOutputStream(client.getOutputStream());
 
-		Thread th = new Thread(() -> {
-			while (isConnected()) {
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-				}
-				banCounter = 0;
-			}
-		}, "Anti-hack thread: " + client);
-		th.setDaemon(true);
-		th.start();
+			// Decode UTF-8 through the buffer of the stream reader
+			reader = new JsonReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+		} catch (IOException e) {
+		}
+		taskThread.start();
+
+		// Anti-hack
+		antiHackTimer = TimerService.getInstance().scheduleRepeating(() -> {
+			if (!isConnected())
+				antiHackTimer.cancel();
+			banCounter = 0;
+		}, 1, 1, TimeUnit.SECONDS);
 	}
 
 	void stop() {
+		antiHackTimer.cancel();
 		taskThread.stopCleanly();
+		outboundQueue.clear();
+		for (String room : getRooms())
+			server.roomLeft(room, this);
 		rooms.clear();
 		privateChat.clear();
 	}
@@ -132,36 +148,21 @@ public class ChatClient {
 		// Parse payload
 		String token = handshakeStart.get("auth_token").getAsString();
 
-		// Verify signature
-		String verifyD = token.split("\\.")[0] + "." + token.split("\\.")[1];
-		String sig = token.split("\\.")[2];
-		if (!Centuria.verify(verifyD.getBytes("UTF-8"), Base64.getUrlDecoder().decode(sig))) {
-			disconnect();
-			return;
-		}
-
-		// Verify expiry
-		JsonObject jwtPl = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-		if (!jwtPl.has("exp") || jwtPl.get("exp").getAsLong() < System.currentTimeMillis() / 1000) {
+		// Verify signature and expiry
+		VerifiedToken jwt = TokenVerifier.verify(token);
+		if (jwt == null) {
 			disconnect();
 			return;
 		}
 
-		// Parse JWT
-		JsonObject payload = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-
 		// Verify access
-		if (!payload.has("acs") || !payload.get("acs").getAsString().equals("gameplay")) {
+		if (!"gameplay".equals(jwt.getAccess()) || jwt.getAccountID() == null) {
 			disconnect();
 			return;
 		}
 
 		// Locate account
-		CenturiaAccount acc = AccountManager.getInstance().getAccount(payload.get("uuid").getAsString());
+		CenturiaAccount acc = AccountManager.getInstance().getAccount(jwt.getAccountID());
 		if (acc == null) {
 			disconnect();
 			return;
@@ -224,9 +225,9 @@ public class ChatClient {
 		}
 
 		// Disconnect connected instances
-		for (ChatClient cl : getServer().getClients())
-			if (cl.getPlayer().getAccountID().equals(acc.getAccountID()) && cl != this)
-				cl.disconnect();
+		ChatClient old = getServer().getClient(acc.getAccountID());
+		if (old != null && old != this)
+			old.disconnect();
 
 		// Log the login attempt
 		Centuria.logger.info("Chat login from IP: " + client.getRemoteSocketAddress() + ": " + acc.getLoginName());
@@ -315,26 +316,46 @@ public class ChatClient {
 	 * @param packet Raw packet to send
 	 */
 	public void sendPacket(JsonObject packet) {
+		// Encode now so the queue holds the packet size instead of the object
+		sendPacket(PreparedChatPacket.of(packet));
+	}
+
+	/**
+	 * Sends a pre-encoded packet to the client
+	 * 
+	 * @since Beta 1.5.4
+	 * @param packet Packet to send
+	 */
+	public void sendPacket(PreparedChatPacket packet) {
+		byte[] frame = packet.frame();
+		if (getSocket() == null || !outboundQueue.offer(frame.length, false))
+			return;
+
 		taskThread.schedule(() -> {
 			try {
 				// Send packet
 				if (getSocket() == null)
 					return;
-				char[] d = packet.toString().toCharArray();
-				for (char ch : d) {
-					client.getOutputStream().write((byte) ch);
-				}
-				client.getOutputStream().write(0x0d);
-				client.getOutputStream().write(0x0a);
-				client.getOutputStream().write(0);
-				client.getOutputStream().flush();
+				output.write(frame);
 				Centuria.logger.debug(MarkerManager.getMarker("CHAT"),
 						"Server to client (user " + player.getDisplayName() + "): " + packet);
 			} catch (Exception e) {
+			} finally {
+				outboundQueue.sent(frame.length);
 			}
 		});
 	}
 
+	/**
+	 * Retrieves the outbound queue of the client, holds the queue depth
+	 * 
+	 * @since Beta 1.5.4
+	 * @return OutboundQueue instance
+	 */
+	public OutboundQueue getOutboundQueue() {
+		return outboundQueue;
+	}
+
 	/**
 	 * Sends a packet to the client
 	 * 
@@ -354,6 +375,8 @@ public class ChatClient {
 	 * @throws IOException If reading fails
 	 */
 	public JsonObject readRawPacket() throws IOException {
+		if (reader == null)
+			throw new IOException("Client input is not available");
 		return JsonParser.parseReader(reader).getAsJsonObject();
 	}
 
@@ -433,6 +456,7 @@ public class ChatClient {
 				if (rooms.contains(room)) {
 					rooms.remove(room);
 					privateChat.remove(room);
+					server.roomLeft(room, this);
 				}
 				break;
 			} catch (ConcurrentModificationException e) {
@@ -452,6 +476,7 @@ public class ChatClient {
 				if (!rooms.contains(room)) {
 					rooms.add(room);
 					privateChat.put(room, isPrivate);
+					server.roomJoined(room, this);
 				}
 				break;
 			} catch (ConcurrentModificationException e) {
@@ -0,0 +1,264 @@
+package org.asf.centuria.networking.chatserver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ *
+ * Compiled chat filter, built once from the word lists. A message is scanned
+ * once to find out if it contains a mute word and to build the filtered and
+ * unfiltered variants sent to recipients.<br/>
+ * <br/>
+ * Words are checked the same way as the word lists were used before: a word
+ * triggers a list if its letters and digits match a listed word, then every
+ * listed word found inside it is replaced with hashtags, in list order.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class ChatFilter {
+
+	private HashSet<String> muteWords;
+	private HashSet<String> filterWords;
+	private HashSet<String> alwaysFilterWords;
+	private WordMatcher filterMatcher;
+	private WordMatcher alwaysFilterMatcher;
+	private String[] words;
+
+	/**
+	 * Scanned chat message
+	 */
+	public static class Result {
+		private boolean muted;
+		private String filtered;
+		private String unfiltered;
+
+		private Result(boolean muted, String filtered, String unfiltered) {
+			this.muted = muted;
+			this.filtered = filtered;
+			this.unfiltered = unfiltered;
+		}
+
+		/**
+		 * Checks if the message contains a word that mutes the sender
+		 *
+		 * @return True if the sender should be muted, false otherwise
+		 */
+		public boolean shouldMute() {
+			return muted;
+		}
+
+		/**
+		 * Retrieves the message for players with the chat filter enabled
+		 *
+		 * @return Filtered message or null if the sender should be muted
+		 */
+		public String getFiltered() {
+			return filtered;
+		}
+
+		/**
+		 * Retrieves the message for players with the chat filter disabled, words
+		 * that are always filtered are still filtered
+		 *
+		 * @return Message or null if the sender should be muted
+		 */
+		public String getUnfiltered() {
+			return unfiltered;
+		}
+	}
+
+	/**
+	 * Compiles a chat filter
+	 *
+	 * @param muteWords         Words that mute the sender
+	 * @param filterWords       Words filtered for players with the chat filter
+	 *                          enabled
+	 * @param alwaysFilterWords Words that are always filtered
+	 */
+	public ChatFilter(List<String> muteWords, List<String> filterWords, List<String> alwaysFilterWords) {
+		this.muteWords = new HashSet<String>(muteWords);
+		this.filterWords = new HashSet<String>(filterWords);
+		this.alwaysFilterWords = new HashSet<String>(alwaysFilterWords);
+		filterMatcher = new WordMatcher(filterWords);
+		alwaysFilterMatcher = new WordMatcher(alwaysFilterWords);
+
+		ArrayList<String> words = new ArrayList<String>();
+		words.addAll(muteWords);
+		words.addAll(filterWords);
+		words.addAll(alwaysFilterWords);
+		this.words = words.toArray(t -> new String[t]);
+	}
+
+	/**
+	 * Retrieves all words in the filter
+	 *
+	 * @return Array of mute, filtered and always filtered words, must not be
+	 *         modified
+	 */
+	public String[] getWords() {
+		return words;
+	}
+
+	/**
+	 * Scans a message
+	 *
+	 * @param message Message to scan, should be trimmed
+	 * @return Result instance
+	 */
+	public Result scan(String message) {
+		StringBuilder filtered = new StringBuilder(message.length());
+		StringBuilder unfiltered = new StringBuilder(message.length());
+
+		int start = 0;
+		while (start <= message.length()) {
+			int end = message.indexOf(' ', start);
+			if (end == -1)
+				end = message.length();
+			String word = message.substring(start, end);
+			if (start != 0) {
+				filtered.append(' ');
+				unfiltered.append(' ');
+			}
+			start = end + 1;
+
+			// Check mute
+			String normalized = normalize(word);
+			if (muteWords.contains(normalized))
+				return new Result(true, null, null);
+
+			// Filter
+			String filteredWord = word;
+			String filteredNormalized = normalized;
+			if (filterWords.contains(normalized)) {
+				filteredWord = filterMatcher.mask(word);
+				filteredNormalized = normalize(filteredWord);
+			}
+			if (alwaysFilterWords.contains(filteredNormalized))
+				filteredWord = alwaysFilterMatcher.mask(filteredWord);
+			filtered.append(filteredWord);
+
+			// Filter words that are always filtered
+			if (alwaysFilterWords.contains(normalized))
+				word = alwaysFilterMatcher.mask(word);
+			unfiltered.append(word);
+		}
+
+		return new Result(false, filtered.toString(), unfiltered.toString());
+	}
+
+	private static String normalize(String word) {
+		StringBuilder normalized = new StringBuilder(word.length());
+		for (int i = 0; i < word.length(); i++) {
+			char ch = word.charAt(i);
+			if (ch >= 'A' && ch <= 'Z')
+				normalized.append((char) (ch + ('a' - 'A')));
+			else if ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9'))
+				normalized.append(ch);
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * Aho-Corasick automaton finding all listed words inside a word
+	 */
+	private static class WordMatcher {
+
+		private static class Node {
+			public HashMap<Character, Node> children = new HashMap<Character, Node>();
+			public Node fail;
+			public int[] patterns = new int[0];
+		}
+
+		private Node root = new Node();
+		private int[] lengths;
+
+		public WordMatcher(List<String> words) {
+			// Build the trie
+			lengths = new int[words.size()];
+			for (int i = 0; i < words.size(); i++) {
+				String word = words.get(i);
+				lengths[i] = word.length();
+				if (word.isEmpty())
+					continue;
+				Node node = root;
+				for (int i2 = 0; i2 < word.length(); i2++)
+					node = node.children.computeIfAbsent(word.charAt(i2), t -> new Node());
+				node.patterns = append(node.patterns, i);
+			}
+
+			// Build the failure links
+			ArrayDeque<Node> queue = new ArrayDeque<Node>();
+			for (Node child : root.children.values()) {
+				child.fail = root;
+				queue.add(child);
+			}
+			while (!queue.isEmpty()) {
+				Node node = queue.poll();
+				for (Character ch : node.children.keySet()) {
+					Node child = node.children.get(ch);
+					Node fail = node.fail;
+					while (fail != null && !fail.children.containsKey(ch))
+						fail = fail.fail;
+					child.fail = fail == null ? root : fail.children.get(ch);
+					for (int pattern : child.fail.patterns)
+						child.patterns = append(child.patterns, pattern);
+					queue.add(child);
+				}
+			}
+		}
+
+		private static int[] append(int[] array, int value) {
+			int[] res = new int[array.length + 1];
+			System.arraycopy(array, 0, res, 0, array.length);
+			res[array.length] = value;
+			return res;
+		}
+
+		/**
+		 * Replaces listed words in a word with hashtags, each listed word replaces
+		 * its leftmost occurrences in list order, skipping occurrences that overlap
+		 * already replaced characters
+		 */
+		public String mask(String word) {
+			// Find all occurrences
+			ArrayList<int[]> matches = new ArrayList<int[]>();
+			Node node = root;
+			for (int i = 0; i < word.length(); i++) {
+				char ch = Character.toLowerCase(word.charAt(i));
+				while (node != root && !node.children.containsKey(ch))
+					node = node.fail;
+				node = node.children.getOrDefault(ch, root);
+				for (int pattern : node.patterns)
+					matches.add(new int[] { pattern, i + 1 - lengths[pattern] });
+			}
+			if (matches.isEmpty())
+				return word;
+
+			// Replace in list order
+			matches.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+			boolean[] masked = new boolean[word.length()];
+			for (int[] match : matches) {
+				int end = match[1] + lengths[match[0]];
+				boolean free = true;
+				for (int i = match[1]; i < end && free; i++)
+					free = !masked[i];
+				if (free) {
+					for (int i = match[1]; i < end; i++)
+						masked[i] = true;
+				}
+			}
+			char[] chars = word.toCharArray();
+			for (int i = 0; i < chars.length; i++) {
+				if (masked[i])
+					chars[i] = '#';
+			}
+			return new String(chars);
+		}
+
+	}
+
+}
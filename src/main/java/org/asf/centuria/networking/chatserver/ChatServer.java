@@ -5,7 +5,9 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.asf.centuria.Centuria;
 import org.asf.centuria.dms.DMManager;
@@ -21,6 +23,7 @@ import org.asf.centuria.networking.chatserver.networking.OpenDMPacket;
 import org.asf.centuria.networking.chatserver.networking.PingPacket;
 import org.asf.centuria.networking.chatserver.networking.SendMessage;
 import org.asf.centuria.networking.chatserver.networking.UserConversations;
+import org.asf.centuria.util.ConnectionThreads;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonIOException;
@@ -29,7 +32,9 @@ import com.google.gson.JsonObject;
 public class ChatServer {
 
 	private ServerSocket server;
-	private ArrayList<ChatClient> clients = new ArrayList<ChatClient>();
+	private Set<ChatClient> clients = ConcurrentHashMap.newKeySet();
+	private Map<String, ChatClient> clientsByAccount = new ConcurrentHashMap<String, ChatClient>();
+	private Map<String, Set<ChatClient>> roomMembers = new ConcurrentHashMap<String, Set<ChatClient>>();
 	ArrayList<AbstractChatPacket> registry = new ArrayList<AbstractChatPacket>();
 
 	public ChatServer(ServerSocket socket) {
@@ -54,22 +59,64 @@ public class ChatServer {
 	}
 
 	public ChatClient[] getClients() {
-		while (true) {
-			try {
-				ArrayList<ChatClient> clients = new ArrayList<ChatClient>(this.clients);
-				var cls = clients;
-				for (ChatClient cl : cls) {
-					if (cl == null || cl.getPlayer() == null) {
-						clients.remove(cl);
-					}
-					if (cl == null) {
-						this.clients.remove(cl);
-					}
-				}
-				return clients.toArray(t -> new ChatClient[t]);
-			} catch (ConcurrentModificationException e) {
+		ArrayList<ChatClient> clients = new ArrayList<ChatClient>(this.clients.size());
+		for (ChatClient cl : this.clients) {
+			if (cl.getPlayer() != null)
+				clients.add(cl);
+		}
+		return clients.toArray(t -> new ChatClient[t]);
+	}
+
+	/**
+	 * Retrieves the clients in a chat room
+	 * 
+	 * @since Beta 1.5.4
+	 * @param room Room ID
+	 * @return Array of ChatClient instances
+	 */
+	public ChatClient[] getRoomMembers(String room) {
+		Set<ChatClient> members = roomMembers.get(room);
+		if (members == null)
+			return new ChatClient[0];
+		ArrayList<ChatClient> clients = new ArrayList<ChatClient>(members.size());
+		for (ChatClient cl : members) {
+			if (!cl.isConnected()) {
+				// Left without leaving the room
+				members.remove(cl);
+				continue;
 			}
+			if (cl.getPlayer() != null && this.clients.contains(cl))
+				clients.add(cl);
 		}
+		return clients.toArray(t -> new ChatClient[t]);
+	}
+
+	void roomJoined(String room, ChatClient client) {
+		roomMembers.compute(room, (id, members) -> {
+			if (members == null)
+				members = ConcurrentHashMap.newKeySet();
+			members.add(client);
+			return members;
+		});
+	}
+
+	void roomLeft(String room, ChatClient client) {
+		roomMembers.computeIfPresent(room, (id, members) -> {
+			members.remove(client);
+			return members.isEmpty() ? null : members;
+		});
+	}
+
+	private void addClient(ChatClient client) {
+		clients.add(client);
+		clientsByAccount.put(client.getPlayer().getAccountID(), client);
+	}
+
+	private void removeClient(ChatClient client) {
+		clients.remove(client);
+		clientsByAccount.remove(client.getPlayer().getAccountID(), client);
+		for (String room : client.getRooms())
+			roomLeft(room, client);
 	}
 
 	/**
@@ -102,14 +149,14 @@ public class ChatServer {
 		ChatClient client = new ChatClient(clientSocket, this);
 
 		// Start the client thread
-		Thread th = new Thread(() -> {
+		ConnectionThreads.start("Chat Client Thread: " + client, () -> {
 			try {
 				// Run start code
 				client.runClient();
 
 				// Add client
 				if (client.isConnected())
-					clients.add(client);
+					addClient(client);
 
 				// Client loop
 				while (client.getSocket() != null) {
@@ -130,7 +177,7 @@ public class ChatServer {
 				if (clients.contains(client)) {
 					Centuria.logger.info(
 							"Player " + client.getPlayer().getDisplayName() + " disconnected from the chat server.");
-					clients.remove(client);
+					removeClient(client);
 				}
 
 				// Mark disconnected
@@ -148,7 +195,7 @@ public class ChatServer {
 				if (clients.contains(client)) {
 					Centuria.logger.info(
 							"Player " + client.getPlayer().getDisplayName() + " disconnected from the chat server.");
-					clients.remove(client);
+					removeClient(client);
 				}
 
 				// Log disconnect
@@ -162,9 +209,7 @@ public class ChatServer {
 				if (client.isConnected())
 					client.disconnect();
 			}
-		}, "Chat Client Thread: " + client);
-		th.setDaemon(true);
-		th.start();
+		});
 	}
 
 	/**
@@ -208,10 +253,8 @@ public class ChatServer {
 		if (!isPrivate || !manager.dmExists(room)) {
 			// Build participants object
 			JsonArray members = new JsonArray();
-			for (ChatClient cl : getClients()) {
-				if (cl.isInRoom(room))
-					members.add(cl.getPlayer().getAccountID());
-			}
+			for (ChatClient cl : getRoomMembers(room))
+				members.add(cl.getPlayer().getAccountID());
 			roomData.add("participants", members);
 		} else {
 			// Build participants object
@@ -245,10 +288,7 @@ public class ChatServer {
 	 * @return ChatClient instance or null
 	 */
 	public ChatClient getClient(String accountID) {
-		for (ChatClient cl : getClients())
-			if (cl.getPlayer().getAccountID().equals(accountID))
-				return cl;
-		return null;
+		return clientsByAccount.get(accountID);
 	}
 
 }
@@ -0,0 +1,63 @@
+package org.asf.centuria.networking.chatserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.gson.JsonObject;
+
+/**
+ *
+ * Pre-encoded chat packet, holds the encoded packet so the same bytes can be
+ * queued for many clients
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class PreparedChatPacket {
+
+	// UTF-8 packet bytes followed by CRLF and a null terminator, never modified
+	private final byte[] frame;
+	private final String content;
+
+	private PreparedChatPacket(byte[] frame, String content) {
+		this.frame = frame;
+		this.content = content;
+	}
+
+	/**
+	 * Encodes a packet as UTF-8
+	 *
+	 * @param packet Packet to encode
+	 * @return PreparedChatPacket instance
+	 */
+	public static PreparedChatPacket of(JsonObject packet) {
+		String data = packet.toString();
+		byte[] payload = data.getBytes(StandardCharsets.UTF_8);
+		byte[] frame = Arrays.copyOf(payload, payload.length + 3);
+		frame[payload.length] = 0x0d;
+		frame[payload.length + 1] = 0x0a;
+		return new PreparedChatPacket(frame, data);
+	}
+
+	/**
+	 * Retrieves the encoded packet length
+	 *
+	 * @return Packet length in bytes, including the terminators
+	 */
+	public int length() {
+		return frame.length;
+	}
+
+	/**
+	 * Retrieves the encoded packet, the returned array must not be modified
+	 */
+	byte[] frame() {
+		return frame;
+	}
+
+	@Override
+	public String toString() {
+		return content;
+	}
+
+}
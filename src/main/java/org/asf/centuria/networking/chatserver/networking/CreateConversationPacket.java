@@ -116,15 +116,13 @@ public class CreateConversationPacket extends AbstractChatPacket {
 			participant.getSaveSharedInventory().setItem("dms", dms);
 
 			// Find online player
-			for (ChatClient plr : client.getServer().getClients()) {
-				if (plr.getPlayer().getAccountID().equals(participant.getAccountID())) {
-					// Join room
-					plr.joinRoom(dmID, true);
-
-					// Send response
-					plr.sendPacket(res);
-					break;
-				}
+			ChatClient plr = client.getServer().getClient(participant.getAccountID());
+			if (plr != null) {
+				// Join room
+				plr.joinRoom(dmID, true);
+
+				// Send response
+				plr.sendPacket(res);
 			}
 		}
 	}
@@ -184,15 +182,13 @@ public class CreateConversationPacket extends AbstractChatPacket {
 			participant.getSaveSharedInventory().setItem("dms", dms);
 
 			// Find online player
-			for (ChatClient plr : client.getServer().getClients()) {
-				if (plr.getPlayer().getAccountID().equals(participant.getAccountID())) {
-					// Join room
-					plr.joinRoom(dmID, true);
-
-					// Send response
-					plr.sendPacket(res);
-					break;
-				}
+			ChatClient plr = client.getServer().getClient(participant.getAccountID());
+			if (plr != null) {
+				// Join room
+				plr.joinRoom(dmID, true);
+
+				// Send response
+				plr.sendPacket(res);
 			}
 		}
 	}
@@ -220,12 +216,10 @@ public class CreateConversationPacket extends AbstractChatPacket {
 
 			// Find online player
 			boolean found = false;
-			for (ChatClient plr : client.getServer().getClients()) {
-				if (plr.getPlayer().getAccountID().equals(id)) {
-					members.add(plr.getPlayer());
-					found = true;
-					break;
-				}
+			ChatClient plr = client.getServer().getClient(id);
+			if (plr != null) {
+				members.add(plr.getPlayer());
+				found = true;
 			}
 
 			// Find offline player
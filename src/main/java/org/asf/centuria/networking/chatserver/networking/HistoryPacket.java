@@ -42,10 +42,11 @@ public class HistoryPacket extends AbstractChatPacket {
 		DMManager manager = DMManager.getInstance();
 		if (client.isInRoom(convo) && client.isRoomPrivate(convo) && manager.dmExists(convo)) {
 			JsonArray msgs = new JsonArray();
+			String[] participants = manager.getDMParticipants(convo);
 			for (PrivateChatMessage msg : manager.getDMHistory(convo, client.getPlayer().getAccountID())) {
 				// Build participant list
 				JsonArray members = new JsonArray();
-				for (String participant : manager.getDMParticipants(convo)) {
+				for (String participant : participants) {
 					if (!participant.equals(msg.source))
 						members.add(participant);
 				}
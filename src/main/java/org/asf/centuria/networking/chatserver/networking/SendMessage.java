@@ -41,10 +41,16 @@ import org.asf.centuria.modules.events.chatcommands.ModuleCommandSyntaxListEvent
 import org.asf.centuria.modules.events.maintenance.MaintenanceEndEvent;
 import org.asf.centuria.modules.events.maintenance.MaintenanceStartEvent;
 import org.asf.centuria.networking.chatserver.ChatClient;
+import org.asf.centuria.networking.chatserver.ChatFilter;
+import org.asf.centuria.networking.chatserver.PreparedChatPacket;
 import org.asf.centuria.networking.gameserver.GameServer;
+import org.asf.centuria.networking.gameserver.LoginPipeline;
+import org.asf.centuria.networking.gameserver.LoginPipeline.Stage;
 import org.asf.centuria.packets.xt.gameserver.inventory.InventoryItemDownloadPacket;
 import org.asf.centuria.packets.xt.gameserver.room.RoomJoinPacket;
 import org.asf.centuria.social.SocialManager;
+import org.asf.centuria.util.DirectoryWatcher;
+import org.asf.centuria.util.OutboundQueue;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -53,76 +59,67 @@ import com.google.gson.JsonParser;
 public class SendMessage extends AbstractChatPacket {
 
 	private static String NIL_UUID = new UUID(0, 0).toString();
-	private static ArrayList<String> muteWords = new ArrayList<String>();
-	private static ArrayList<String> filterWords = new ArrayList<String>();
-	private static ArrayList<String> alwaysfilterWords = new ArrayList<String>();
+	private static volatile ChatFilter chatFilter;
 
 	public static ArrayList<String> clearanceCodes = new ArrayList<String>();
 	private static Random rnd = new Random();
 
 	public static String[] getInvalidWords() {
-		ArrayList<String> fullList = new ArrayList<String>();
-		fullList.addAll(muteWords);
-		fullList.addAll(filterWords);
-		fullList.addAll(alwaysfilterWords);
-		return fullList.toArray(t -> new String[t]);
+		return chatFilter.getWords();
 	}
 
 	static {
 		reloadFilter();
+
+		// Reload when the local filters change
+		new DirectoryWatcher("Chat Filter", Path.of("textfilter"), () -> {
+			Centuria.logger.info("Updating chat filter...");
+			reloadFilter();
+		}, "filter.txt", "alwaysfilter.txt", "instamute.txt").start();
 	}
 
 	private static void reloadFilter() {
-		muteWords.clear();
-		filterWords.clear();
-		alwaysfilterWords.clear();
+		// Build new lists so the current filter stays usable while loading
+		ArrayList<String> muteWords = new ArrayList<String>();
+		ArrayList<String> filterWords = new ArrayList<String>();
+		ArrayList<String> alwaysfilterWords = new ArrayList<String>();
 
 		// Load filter
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/filter.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(";"))
-					filterWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		loadWords(InventoryItemDownloadPacket.class.getClassLoader().getResourceAsStream("textfilter/filter.txt"),
+				filterWords);
 
 		// Load ban words
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/instamute.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
+		loadWords(InventoryItemDownloadPacket.class.getClassLoader().getResourceAsStream("textfilter/instamute.txt"),
+				muteWords);
 
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
+		// Load always filtered words
+		loadWords(
+				InventoryItemDownloadPacket.class.getClassLoader().getResourceAsStream("textfilter/alwaysfilter.txt"),
+				alwaysfilterWords);
 
-				for (String word : data.split(";"))
-					muteWords.add(word.toLowerCase());
+		// Load local filters
+		if (!new File("textfilter").exists()) {
+			new File("textfilter").mkdirs();
+			try {
+				Files.writeString(Path.of("textfilter/filter.txt"), "");
+				Files.writeString(Path.of("textfilter/alwaysfilter.txt"), "");
+				Files.writeString(Path.of("textfilter/instamute.txt"), "");
+			} catch (IOException e) {
 			}
-			strm.close();
+		}
+		try {
+			loadWords(new FileInputStream("textfilter/filter.txt"), filterWords);
+			loadWords(new FileInputStream("textfilter/instamute.txt"), muteWords);
+			loadWords(new FileInputStream("textfilter/alwaysfilter.txt"), alwaysfilterWords);
 		} catch (IOException e) {
-			e.printStackTrace();
 		}
 
-		// Load always filtered words
+		// Compile filter and swap it in
+		chatFilter = new ChatFilter(muteWords, filterWords, alwaysfilterWords);
+	}
+
+	private static void loadWords(InputStream strm, ArrayList<String> output) {
 		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/alwaysfilter.txt");
 			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
 			for (String line : lines.split("\n")) {
 				if (line.isEmpty() || line.startsWith("#"))
@@ -133,95 +130,14 @@ public class SendMessage extends AbstractChatPacket {
 					data = data.replace("  ", "");
 
 				for (String word : data.split(";"))
-					alwaysfilterWords.add(word.toLowerCase());
+					output.add(word.toLowerCase());
 			}
 			strm.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-
-		// Load local filters
-		if (!new File("textfilter").exists()) {
-			new File("textfilter").mkdirs();
-			try {
-				Files.writeString(Path.of("textfilter/filter.txt"), "");
-				Files.writeString(Path.of("textfilter/alwaysfilter.txt"), "");
-				Files.writeString(Path.of("textfilter/instamute.txt"), "");
-			} catch (IOException e) {
-			}
-		}
-		try {
-			filterLastChange = Files.getLastModifiedTime(Path.of("textfilter/filter.txt")).toMillis();
-			alwaysFilterLastChange = Files.getLastModifiedTime(Path.of("textfilter/alwaysfilter.txt")).toMillis();
-			instaMuteLastChange = Files.getLastModifiedTime(Path.of("textfilter/instamute.txt")).toMillis();
-
-			// Load filter
-			try {
-				InputStream strm = new FileInputStream("textfilter/filter.txt");
-				String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-				for (String line : lines.split("\n")) {
-					if (line.isEmpty() || line.startsWith("#"))
-						continue;
-
-					String data = line.trim();
-					while (data.contains("  "))
-						data = data.replace("  ", "");
-
-					for (String word : data.split(";"))
-						filterWords.add(word.toLowerCase());
-				}
-				strm.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-
-			// Load ban words
-			try {
-				InputStream strm = new FileInputStream("textfilter/instamute.txt");
-				String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-				for (String line : lines.split("\n")) {
-					if (line.isEmpty() || line.startsWith("#"))
-						continue;
-
-					String data = line.trim();
-					while (data.contains("  "))
-						data = data.replace("  ", "");
-
-					for (String word : data.split(";"))
-						muteWords.add(word.toLowerCase());
-				}
-				strm.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-
-			// Load always filtered words
-			try {
-				InputStream strm = new FileInputStream("textfilter/alwaysfilter.txt");
-				String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-				for (String line : lines.split("\n")) {
-					if (line.isEmpty() || line.startsWith("#"))
-						continue;
-
-					String data = line.trim();
-					while (data.contains("  "))
-						data = data.replace("  ", "");
-
-					for (String word : data.split(";"))
-						alwaysfilterWords.add(word.toLowerCase());
-				}
-				strm.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		} catch (IOException e) {
-		}
 	}
 
-	private static long filterLastChange;
-	private static long alwaysFilterLastChange;
-	private static long instaMuteLastChange;
-
 	private String message;
 	private String room;
 
@@ -287,21 +203,6 @@ public class SendMessage extends AbstractChatPacket {
 		if (!client.isRoomPrivate(room))
 			Centuria.logger.info("Chat: " + client.getPlayer().getDisplayName() + ": " + message);
 
-		// Check times of the filter update
-		try {
-			long filterLastChange = Files.getLastModifiedTime(Path.of("textfilter/filter.txt")).toMillis();
-			long alwaysFilterLastChange = Files.getLastModifiedTime(Path.of("textfilter/alwaysfilter.txt")).toMillis();
-			long instaMuteLastChange = Files.getLastModifiedTime(Path.of("textfilter/instamute.txt")).toMillis();
-			if (SendMessage.filterLastChange != filterLastChange
-					|| SendMessage.alwaysFilterLastChange != alwaysFilterLastChange
-					|| SendMessage.instaMuteLastChange != instaMuteLastChange) {
-				// Reload
-				Centuria.logger.info("Updating chat filter...");
-				reloadFilter();
-			}
-		} catch (IOException e) {
-		}
-
 		// Increase ban counter
 		client.banCounter++;
 
@@ -342,33 +243,25 @@ public class SendMessage extends AbstractChatPacket {
 		}
 
 		// Check filter
-		String newMessage = "";
-		for (String word : message.split(" ")) {
-			if (muteWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-				// Mute
-				client.getPlayer().mute(0, 0, 30, "SYSTEM", "Illegal word in chat");
-
-				// Send system message
-				if (client.isRoomPrivate(room)) {
-					// DM message
-					Centuria.systemMessage(gameClient,
-							"You have been automatically muted for violating the emulator rules, mute will last 30 minutes.\nReason: illegal word in chat.",
-							true);
-				} else {
-					// Public chat
-					Centuria.systemMessage(gameClient,
-							"You have been automatically muted for violating the emulator rules, mute will last 30 minutes.\nReason: illegal word in chat.");
-				}
-
-				return true;
+		ChatFilter.Result filterResult = chatFilter.scan(message);
+		if (filterResult.shouldMute()) {
+			// Mute
+			client.getPlayer().mute(0, 0, 30, "SYSTEM", "Illegal word in chat");
+
+			// Send system message
+			if (client.isRoomPrivate(room)) {
+				// DM message
+				Centuria.systemMessage(gameClient,
+						"You have been automatically muted for violating the emulator rules, mute will last 30 minutes.\nReason: illegal word in chat.",
+						true);
+			} else {
+				// Public chat
+				Centuria.systemMessage(gameClient,
+						"You have been automatically muted for violating the emulator rules, mute will last 30 minutes.\nReason: illegal word in chat.");
 			}
 
-			if (!newMessage.isEmpty())
-				newMessage += " " + word;
-			else
-				newMessage = word;
+			return true;
 		}
-		message = newMessage;
 
 		// Fire event
 		ChatMessageBroadcastEvent evt2 = new ChatMessageBroadcastEvent(client.getServer(), client.getPlayer(), client,
@@ -392,103 +285,50 @@ public class SendMessage extends AbstractChatPacket {
 				manager.saveDMMessge(room, msg);
 			}
 
+			// Build the message once for each filter variant
+			String sentAt = fmt.format(new Date());
+			PreparedChatPacket filtered = buildMessagePacket(client, filterResult.getFiltered(), sentAt);
+			PreparedChatPacket unfiltered = filterResult.getFiltered().equals(filterResult.getUnfiltered())
+					? filtered
+					: buildMessagePacket(client, filterResult.getUnfiltered(), sentAt);
+
 			// Send to all in room
 			Player cPlayer = gameClient;
 			SocialManager socialManager = SocialManager.getInstance();
-			for (ChatClient cl : client.getServer().getClients()) {
-				if (cl.isInRoom(room)) {
-					if (!socialManager.socialListExists(cl.getPlayer().getAccountID()) || !socialManager
-							.getPlayerIsBlocked(cl.getPlayer().getAccountID(), client.getPlayer().getAccountID())) {
-						// Check limbo player
-						gameClient = cl.getPlayer().getOnlinePlayerInstance();
-						if (gameClient == null || !gameClient.roomReady || gameClient.room == null)
-							continue;
-
-						// Check ghost mode
-						if (cPlayer.ghostMode && !gameClient.hasModPerms && !client.isRoomPrivate(room))
-							continue;
-
-						// Filter
-						String filteredMessage = "";
-
-						// Load filter settings
-						int filterSetting = 0;
-						UserVarValue val = cl.getPlayer().getSaveSpecificInventory().getUserVarAccesor()
-								.getPlayerVarValue(9362, 0);
-						if (val != null)
-							filterSetting = val.value;
-
-						// Check filter
-						for (String word : message.split(" ")) {
-							if (filterSetting != 0) {
-								if (filterWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-									// Filter it
-									for (String filter : filterWords) {
-										while (word.toLowerCase().contains(filter.toLowerCase())) {
-											String start = word.substring(0,
-													word.toLowerCase().indexOf(filter.toLowerCase()));
-											String rest = word.substring(
-													word.toLowerCase().indexOf(filter.toLowerCase()) + filter.length());
-											String tag = "";
-											for (int i = 0; i < filter.length(); i++) {
-												tag += "#";
-											}
-											word = start + tag + rest;
-										}
-									}
-								}
-							}
-
-							// check always filtered
-							if (alwaysfilterWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-								// Filter it
-								for (String filter : alwaysfilterWords) {
-									while (word.toLowerCase().contains(filter.toLowerCase())) {
-										String start = word.substring(0,
-												word.toLowerCase().indexOf(filter.toLowerCase()));
-										String rest = word.substring(
-												word.toLowerCase().indexOf(filter.toLowerCase()) + filter.length());
-										String tag = "";
-										for (int i = 0; i < filter.length(); i++) {
-											tag += "#";
-										}
-										word = start + tag + rest;
-									}
-								}
-							}
-
-							if (!filteredMessage.isEmpty())
-								filteredMessage += " " + word;
-							else
-								filteredMessage = word;
-						}
+			for (ChatClient cl : client.getServer().getRoomMembers(room)) {
+				if (!socialManager.socialListExists(cl.getPlayer().getAccountID()) || !socialManager
+						.getPlayerIsBlocked(cl.getPlayer().getAccountID(), client.getPlayer().getAccountID())) {
+					// Check limbo player
+					gameClient = cl.getPlayer().getOnlinePlayerInstance();
+					if (gameClient == null || !gameClient.roomReady || gameClient.room == null)
+						continue;
 
-						// Check if the source blocked this player, if so, prevent them form receiving
-						if (socialManager.getPlayerIsBlocked(client.getPlayer().getAccountID(),
-								cl.getPlayer().getAccountID())) {
-							// Check mod perms
-							String permLevel = "member";
-							if (cl.getPlayer().getSaveSharedInventory().containsItem("permissions")) {
-								permLevel = cl.getPlayer().getSaveSharedInventory().getItem("permissions")
-										.getAsJsonObject().get("permissionLevel").getAsString();
-							}
-							if (!GameServer.hasPerm(permLevel, "moderator"))
-								continue; // Blocked
-						}
+					// Check ghost mode
+					if (cPlayer.ghostMode && !gameClient.hasModPerms && !client.isRoomPrivate(room))
+						continue;
 
-						// Send response
-						JsonObject res = new JsonObject();
-						res.addProperty("conversationType", client.isRoomPrivate(room) ? "private" : "room");
-						res.addProperty("conversationId", room);
-						res.addProperty("message", filteredMessage);
-						res.addProperty("source", client.getPlayer().getAccountID());
-						res.addProperty("sentAt", fmt.format(new Date()));
-						res.addProperty("eventId", "chat.postMessage");
-						res.addProperty("success", true);
-
-						// Send message
-						cl.sendPacket(res);
+					// Load filter settings
+					int filterSetting = 0;
+					UserVarValue val = cl.getPlayer().getSaveSpecificInventory().getUserVarAccesor()
+							.getPlayerVarValue(9362, 0);
+					if (val != null)
+						filterSetting = val.value;
+
+					// Check if the source blocked this player, if so, prevent them form receiving
+					if (socialManager.getPlayerIsBlocked(client.getPlayer().getAccountID(),
+							cl.getPlayer().getAccountID())) {
+						// Check mod perms
+						String permLevel = "member";
+						if (cl.getPlayer().getSaveSharedInventory().containsItem("permissions")) {
+							permLevel = cl.getPlayer().getSaveSharedInventory().getItem("permissions")
+									.getAsJsonObject().get("permissionLevel").getAsString();
+						}
+						if (!GameServer.hasPerm(permLevel, "moderator"))
+							continue; // Blocked
 					}
+
+					// Send message
+					cl.sendPacket(filterSetting != 0 ? filtered : unfiltered);
 				}
 			}
 		}
@@ -496,6 +336,18 @@ public class SendMessage extends AbstractChatPacket {
 		return true;
 	}
 
+	private PreparedChatPacket buildMessagePacket(ChatClient client, String message, String sentAt) {
+		JsonObject res = new JsonObject();
+		res.addProperty("conversationType", client.isRoomPrivate(room) ? "private" : "room");
+		res.addProperty("conversationId", room);
+		res.addProperty("message", message);
+		res.addProperty("source", client.getPlayer().getAccountID());
+		res.addProperty("sentAt", sentAt);
+		res.addProperty("eventId", "chat.postMessage");
+		res.addProperty("success", true);
+		return PreparedChatPacket.of(res);
+	}
+
 	// Command parser
 	private ArrayList<String> parseCommand(String args) {
 		ArrayList<String> args3 = new ArrayList<String>();
@@ -547,6 +399,8 @@ public class SendMessage extends AbstractChatPacket {
 
 		if (GameServer.hasPerm(permLevel, "moderator")) {
 			commandMessages.add("toggleghostmode");
+			commandMessages.add("outboundqueues");
+			commandMessages.add("loginstats");
 			commandMessages.add("toggletpoverride");
 			commandMessages.add("kick \"<player>\" [\"<reason>\"]");
 			commandMessages.add("ipban \"<player/address>\" [\"<reason>\"]");
@@ -782,6 +636,47 @@ public class SendMessage extends AbstractChatPacket {
 						systemMessage(response, cmd, client);
 						return true;
 					}
+					case "outboundqueues": {
+						// List the clients with queued packets
+						String response = "Outbound queues (packets, bytes, dropped):";
+						int lagging = 0;
+						for (Player plr : Centuria.gameServer.getPlayers()) {
+							OutboundQueue queue = plr.client.getOutboundQueue();
+							ChatClient chClient = client.getServer().getClient(plr.account.getAccountID());
+							OutboundQueue chatQueue = chClient != null ? chClient.getOutboundQueue() : null;
+							if (queue.getMessages() == 0 && queue.getDropped() == 0
+									&& (chatQueue == null || chatQueue.getMessages() == 0))
+								continue;
+							response += "\n - " + plr.account.getDisplayName() + ": game " + queue.getMessages() + ", "
+									+ queue.getBytes() + ", " + queue.getDropped();
+							if (chatQueue != null)
+								response += "; chat " + chatQueue.getMessages() + ", " + chatQueue.getBytes();
+							if (queue.isOverHighWater() || (chatQueue != null && chatQueue.isOverHighWater()))
+								response += " [LAGGING]";
+							lagging++;
+						}
+						if (lagging == 0)
+							response += "\nNo queued packets.";
+
+						// Send response
+						systemMessage(response, cmd, client);
+						return true;
+					}
+					case "loginstats": {
+						// Show the login pipeline state
+						LoginPipeline pipeline = Centuria.gameServer.getLoginPipeline();
+						String response = "Login pipeline: " + pipeline.getRunning() + "/" + pipeline.getConcurrency()
+								+ " running, " + pipeline.getQueued() + "/" + pipeline.getQueueSize() + " queued, "
+								+ pipeline.getRejected() + " rejected, " + pipeline.getLogins() + " logins";
+						response += "\nAverage time per stage:";
+						for (Stage stage : Stage.values())
+							response += "\n - " + stage + ": "
+									+ String.format("%.2f", pipeline.getAverageStageTime(stage)) + "ms";
+
+						// Send response
+						systemMessage(response, cmd, client);
+						return true;
+					}
 					case "mute": {
 						// Mute
 						if (args.size() < 1) {
@@ -1044,13 +939,7 @@ public class SendMessage extends AbstractChatPacket {
 								join.levelID = 1718;
 
 								// Sync
-								GameServer srv = (GameServer) plr.client.getServer();
-								for (Player player : srv.getPlayers()) {
-									if (plr.room != null && player.room != null && player.room.equals(plr.room)
-											&& player != plr) {
-										plr.destroyAt(player);
-									}
-								}
+								plr.destroyAt(player -> player != plr);
 
 								// Assign room
 								plr.roomReady = false;
@@ -1353,9 +1242,8 @@ public class SendMessage extends AbstractChatPacket {
 
 							// Spawn for everyone in room
 							GameServer server = (GameServer) plr.client.getServer();
-							for (Player player : server.getPlayers()) {
-								if (plr.room != null && player.room != null && player.room.equals(plr.room)
-										&& player != plr) {
+							for (Player player : server.getPlayersNear(plr)) {
+								if (player != plr) {
 									plr.syncTo(player);
 									Centuria.logger.debug(MarkerManager.getMarker("WorldReadyPacket"), "Syncing player "
 											+ player.account.getDisplayName() + " to " + plr.account.getDisplayName());
@@ -1396,9 +1284,8 @@ public class SendMessage extends AbstractChatPacket {
 
 							// Spawn for everyone in room
 							GameServer server = (GameServer) plr.client.getServer();
-							for (Player player : server.getPlayers()) {
-								if (plr.room != null && player.room != null && player.room.equals(plr.room)
-										&& player != plr && !player.hasModPerms) {
+							for (Player player : server.getPlayersInRoom(plr.room)) {
+								if (player != plr && !player.hasModPerms) {
 									plr.destroyAt(player);
 									Centuria.logger.debug(MarkerManager.getMarker("WorldReadyPacket"),
 											"Removing player " + player.account.getDisplayName() + " from "
@@ -8,20 +8,17 @@ import java.nio.file.Files;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
 import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
+import org.apache.logging.log4j.MarkerManager;
 import org.asf.centuria.Centuria;
 import org.asf.centuria.accounts.AccountManager;
 import org.asf.centuria.accounts.CenturiaAccount;
-import org.asf.centuria.data.XtWriter;
 import org.asf.centuria.entities.players.Player;
 import org.asf.centuria.enums.players.OnlineStatus;
-import org.asf.centuria.interactions.NetworkedObjects;
-import org.asf.centuria.interactions.dataobjects.NetworkedObject;
 import org.asf.centuria.ipbans.IpBanManager;
 import org.asf.centuria.modules.eventbus.EventBus;
 import org.asf.centuria.modules.events.accounts.AccountLoginEvent;
@@ -31,7 +28,10 @@ import org.asf.centuria.modules.events.players.PlayerJoinEvent;
 import org.asf.centuria.modules.events.players.PlayerLeaveEvent;
 import org.asf.centuria.modules.events.servers.GameServerStartupEvent;
 import org.asf.centuria.networking.chatserver.ChatClient;
+import org.asf.centuria.networking.gameserver.LoginPipeline.Stage;
+import org.asf.centuria.networking.gameserver.LoginPipeline.Ticket;
 import org.asf.centuria.networking.smartfox.BaseSmartfoxServer;
+import org.asf.centuria.networking.smartfox.PreparedPacket;
 import org.asf.centuria.networking.smartfox.SmartfoxClient;
 import org.asf.centuria.networking.smartfox.SocketSmartfoxClient;
 import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
@@ -55,12 +55,15 @@ import org.asf.centuria.packets.xt.gameserver.user.*;
 import org.asf.centuria.packets.xt.gameserver.world.*;
 import org.asf.centuria.security.AddressChecker;
 import org.asf.centuria.security.IpAddressMatcher;
+import org.asf.centuria.security.TokenVerifier;
+import org.asf.centuria.security.VerifiedToken;
 import org.asf.centuria.social.SocialEntry;
 import org.asf.centuria.social.SocialManager;
+import org.asf.centuria.util.ConnectionThreads;
+import org.asf.centuria.util.TimerService;
 
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 public class GameServer extends BaseSmartfoxServer {
 
@@ -72,7 +75,10 @@ public class GameServer extends BaseSmartfoxServer {
 	public boolean shutdown = false;
 	private Random rnd = new Random();
 	private XmlMapper mapper = new XmlMapper();
-	private HashMap<String, Player> players = new HashMap<String, Player>();
+	private PlayerRegistry players = new PlayerRegistry();
+	private MovementTicker movementTicker;
+	private InterestManager interestManager;
+	private LoginPipeline loginPipeline = new LoginPipeline(8, 5000);
 
 	public ArrayList<String> vpnIpsV4 = new ArrayList<String>();
 	public ArrayList<String> vpnIpsV6 = new ArrayList<String>();
@@ -80,12 +86,159 @@ public class GameServer extends BaseSmartfoxServer {
 	public String whitelistFile = null;
 
 	public Player[] getPlayers() {
-		while (true) {
-			try {
-				return players.values().toArray(t -> new Player[t]);
-			} catch (ConcurrentModificationException e) {
+		return players.getPlayers();
+	}
+
+	/**
+	 * Retrieves the players in a room, the returned array is shared and must not
+	 * be modified
+	 * 
+	 * @since Beta 1.5.4
+	 * @param room Room identifier
+	 * @return Array of Player instances
+	 */
+	public Player[] getPlayersInRoom(String room) {
+		return players.getPlayersInRoom(room);
+	}
+
+	/**
+	 * Retrieves the player registry
+	 * 
+	 * @since Beta 1.5.4
+	 * @return PlayerRegistry instance
+	 */
+	public PlayerRegistry getPlayerRegistry() {
+		return players;
+	}
+
+	/**
+	 * Enables the movement tick, movement updates are then sent to the room at a
+	 * fixed rate instead of right away. Needs to be called before start().
+	 * 
+	 * @since Beta 1.5.4
+	 * @param tickRate Amount of ticks per second
+	 */
+	public void useMovementTick(int tickRate) {
+		movementTicker = new MovementTicker(this, tickRate);
+	}
+
+	/**
+	 * Retrieves the movement ticker
+	 * 
+	 * @since Beta 1.5.4
+	 * @return MovementTicker instance or null if the movement tick is disabled
+	 */
+	public MovementTicker getMovementTicker() {
+		return movementTicker;
+	}
+
+	/**
+	 * Enables area-of-interest management, players then only see the players
+	 * within the given radius of them instead of the whole room
+	 * 
+	 * @since Beta 1.5.4
+	 * @param radius     Distance within which players see each other
+	 * @param hysteresis Extra distance players need to move apart before they
+	 *                   stop seeing each other
+	 */
+	public void useInterestManagement(double radius, double hysteresis) {
+		interestManager = new InterestManager(radius, hysteresis);
+	}
+
+	/**
+	 * Retrieves the interest manager
+	 * 
+	 * @since Beta 1.5.4
+	 * @return InterestManager instance or null if interest management is disabled
+	 */
+	public InterestManager getInterestManager() {
+		return interestManager;
+	}
+
+	/**
+	 * Configures the login pipeline, limits how many logins run at once and how
+	 * many can wait in the login queue
+	 * 
+	 * @since Beta 1.5.4
+	 * @param concurrency Maximum amount of logins that run at once
+	 * @param queueSize   Maximum amount of logins that can wait in the queue
+	 */
+	public void useLoginPipeline(int concurrency, int queueSize) {
+		loginPipeline.stop();
+		loginPipeline = new LoginPipeline(concurrency, queueSize);
+	}
+
+	/**
+	 * Retrieves the login pipeline
+	 * 
+	 * @since Beta 1.5.4
+	 * @return LoginPipeline instance
+	 */
+	public LoginPipeline getLoginPipeline() {
+		return loginPipeline;
+	}
+
+	/**
+	 * Retrieves the players that can see a player, this is the whole room unless
+	 * interest management is enabled
+	 * 
+	 * @since Beta 1.5.4
+	 * @param player Player to find the nearby players of
+	 * @return Array of Player instances, may contain the player itself
+	 */
+	public Player[] getPlayersNear(Player player) {
+		if (interestManager == null)
+			return players.getPlayersInRoom(player.room);
+		return interestManager.getVisiblePlayers(player);
+	}
+
+	/**
+	 * Sends a packet to all players matching a filter, the packet is only built
+	 * once
+	 * 
+	 * @since Beta 1.5.4
+	 * @param packet     Packet to send
+	 * @param recipients Filter selecting the players to send the packet to
+	 * @return Amount of players the packet was sent to
+	 */
+	public int broadcast(ISmartfoxPacket packet, Predicate<Player> recipients) {
+		ArrayList<SmartfoxClient> clients = new ArrayList<SmartfoxClient>();
+		for (Player player : getPlayers()) {
+			if (recipients.test(player))
+				clients.add(player.client);
+		}
+		return broadcast(packet, clients);
+	}
+
+	/**
+	 * Sends a packet to the players in a room matching a filter, the packet is
+	 * only built once
+	 * 
+	 * @since Beta 1.5.4
+	 * @param room       Room identifier
+	 * @param packet     Packet to send
+	 * @param recipients Filter selecting the players to send the packet to
+	 * @return Amount of players the packet was sent to
+	 */
+	public int broadcastToRoom(String room, ISmartfoxPacket packet, Predicate<Player> recipients) {
+		PreparedPacket prepared = null;
+		int sent = 0;
+		for (Player player : players.getPlayersInRoom(room)) {
+			if (!recipients.test(player))
+				continue;
+			if (prepared == null) {
+				// Build on first use
+				try {
+					prepared = PreparedPacket.of(packet);
+				} catch (IOException e) {
+					Centuria.logger.error("Failed to build broadcast packet", e);
+					return 0;
+				}
 			}
+			player.client.sendPacket(prepared);
+			sent++;
 		}
+		return sent;
 	}
 
 	@Override
@@ -181,42 +334,41 @@ public class GameServer extends BaseSmartfoxServer {
 		String token = auth.pword;
 		auth.pword = null; // Keep it away from modules
 
-		// Verify signature
-		String verifyD = token.split("\\.")[0] + "." + token.split("\\.")[1];
-		String sig = token.split("\\.")[2];
-		if (!Centuria.verify(verifyD.getBytes("UTF-8"), Base64.getUrlDecoder().decode(sig))) {
+		// Run the rest of the login on the login pipeline
+		boolean outdatedClient = badClient;
+		if (!loginPipeline.run(client, ticket -> login(client, auth, token, outdatedClient, ticket))
+				&& client.isConnected()) {
+			Centuria.logger.warn(MarkerManager.getMarker("LOGIN"),
+					"Login from " + client.getAddress() + " rejected: the login queue is full");
 			client.disconnect();
-			return;
 		}
+	}
 
-		// Verify expiry
-		JsonObject jwtPl = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-		if (!jwtPl.has("exp") || jwtPl.get("exp").getAsLong() < System.currentTimeMillis() / 1000) {
+	private void login(SmartfoxClient client, ClientToServerAuthPacket auth, String token, boolean badClient,
+			Ticket ticket) throws IOException {
+		// Verify signature and expiry
+		VerifiedToken jwt = TokenVerifier.verify(token);
+		if (jwt == null) {
 			client.disconnect();
 			return;
 		}
 
-		// Parse JWT
-		JsonObject payload = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-
 		// Verify access
-		if (!payload.has("acs") || !payload.get("acs").getAsString().equals("gameplay")) {
+		if (!"gameplay".equals(jwt.getAccess()) || jwt.getAccountID() == null) {
 			client.disconnect();
 			return;
 		}
 
 		// Locate account
-		CenturiaAccount acc = AccountManager.getInstance().getAccount(payload.get("uuid").getAsString());
+		ticket.next(Stage.ACCOUNT);
+		CenturiaAccount acc = AccountManager.getInstance().getAccount(jwt.getAccountID());
 		if (acc == null) {
 			client.disconnect();
 			return;
 		}
 
 		// Allow modules to add parameter fields
+		ticket.next(Stage.EVENTS);
 		JsonObject params = new JsonObject();
 		AccountPreloginEvent evt = new AccountPreloginEvent(this, acc, client, params, auth);
 		EventBus.getInstance().dispatchEvent(evt);
@@ -230,6 +382,7 @@ public class GameServer extends BaseSmartfoxServer {
 		}
 
 		// If under maintenance, send error
+		ticket.next(Stage.CHECKS);
 		if (maintenance) {
 			boolean lockout = true;
 
@@ -310,6 +463,7 @@ public class GameServer extends BaseSmartfoxServer {
 		Centuria.logger.info("Login from IP: " + client.getAddress() + ": " + acc.getLoginName());
 
 		// Run module handshake code
+		ticket.next(Stage.EVENTS);
 		AccountLoginEvent ev = new AccountLoginEvent(this, acc, client, params);
 		EventBus.getInstance().dispatchEvent(ev);
 		if (ev.isHandled() && ev.getStatus() != 1) {
@@ -322,6 +476,7 @@ public class GameServer extends BaseSmartfoxServer {
 		}
 
 		// Send response
+		ticket.next(Stage.SESSION);
 		sendLoginResponse(client, auth, acc, 1, acc.isPlayerNew() ? 2 : 3, new JsonObject());
 		sendPacket(client, "%xt%ulc%-1%");
 
@@ -356,6 +511,15 @@ public class GameServer extends BaseSmartfoxServer {
 		// Update login timestamp
 		acc.login();
 
+		// Kick the player once their session expires
+		long sessionEnd = acc.getLastLoginTime() + (2 * 24 * 60 * 60);
+		plr.sessionExpiryTimer = TimerService.getInstance().schedule(() -> {
+			// Kick players that are ingame for wayyy to long, kicking waits for the
+			// kick message to be sent so it cannot run on the timer thread
+			ConnectionThreads.start("Session Expiry: " + plr.account.getLoginName(),
+					() -> plr.account.kickDirect("SYSTEM", "Session expired"));
+		}, sessionEnd - (System.currentTimeMillis() / 1000), TimeUnit.SECONDS);
+
 		// Save player in the client object
 		client.container = plr;
 
@@ -396,7 +560,7 @@ public class GameServer extends BaseSmartfoxServer {
 		}
 
 		// Add player
-		players.put(plr.account.getAccountID(), plr);
+		players.add(plr);
 
 		// Dispatch join event
 		EventBus.getInstance().dispatchEvent(new PlayerJoinEvent(this, plr, acc, client));
@@ -410,8 +574,9 @@ public class GameServer extends BaseSmartfoxServer {
 	 * @param plr Player instance
 	 */
 	protected void playerLeft(Player plr) {
-		if (players.containsKey(plr.account.getAccountID())) {
-			players.remove(plr.account.getAccountID());
+		if (interestManager != null)
+			interestManager.remove(plr);
+		if (players.remove(plr)) {
 			Centuria.logger.info("Player disconnected: " + plr.account.getLoginName() + " (was "
 					+ plr.account.getDisplayName() + ")");
 
@@ -419,8 +584,12 @@ public class GameServer extends BaseSmartfoxServer {
 			EventBus.getInstance().dispatchEvent(new PlayerLeaveEvent(this, plr, plr.account, plr.client));
 		}
 
+		// Stop timers
+		if (plr.sessionExpiryTimer != null)
+			plr.sessionExpiryTimer.cancel();
+
 		// Clear objects
-		plr.respawnItems.clear();
+		plr.clearRespawnItems();
 
 		// End current game
 		if (plr.currentGame != null) {
@@ -428,33 +597,22 @@ public class GameServer extends BaseSmartfoxServer {
 			plr.currentGame = null;
 		}
 
-		// Remove player character from all clients
-		for (Player player : getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				plr.destroyAt(player);
-			}
-		}
+		// Remove player character from all clients, after dropping its pending
+		// movement so the tick does not send it afterwards
+		if (movementTicker != null)
+			movementTicker.discard(plr);
+		plr.destroyAt(player -> player != plr);
 
 		// Disconnect from chat server
 		for (ChatClient cl : Centuria.chatServer.getClients()) {
 			if (cl.getPlayer().getAccountID().equals(plr.account.getAccountID())) {
-				Thread th = new Thread(() -> {
-					int i = 0;
-					while (cl.isConnected()) {
-						if (i == 3)
-							break;
-						try {
-							Thread.sleep(1000);
-						} catch (InterruptedException e) {
-						}
-						i++;
-					}
-
+				// Give the client a few seconds to disconnect by itself, disconnecting
+				// waits for the client to flush so it cannot run on the timer thread
+				TimerService.getInstance().schedule(() -> {
 					if (cl.isConnected())
-						cl.disconnect();
-				}, "Chat Client Cleanup: " + cl.getPlayer().getAccountID());
-				th.setDaemon(true);
-				th.start();
+						ConnectionThreads.start("Chat Disconnect: " + plr.account.getLoginName(),
+								() -> cl.disconnect());
+				}, 3, TimeUnit.SECONDS);
 				break;
 			}
 		}
@@ -586,97 +744,14 @@ public class GameServer extends BaseSmartfoxServer {
 
 	@Override
 	protected void onStart() {
-		// Anti-expiry (kicks players who go past token expiry)
-		Thread th = new Thread(() -> {
-			while (Centuria.directorServer.isActive()) {
-				// Find players who are logged in for longer than two days
-				for (Player plr : getPlayers()) {
-					long loginTimestamp = plr.account.getLastLoginTime();
-					if ((System.currentTimeMillis() / 1000) - (2 * 24 * 60 * 60) >= loginTimestamp) {
-						// Kick players that are ingame for wayyy to long
-						plr.account.kickDirect("SYSTEM", "Session expired");
-					}
-				}
-				try {
-					Thread.sleep(30000);
-				} catch (InterruptedException e) {
-				}
-			}
-		}, "Player API Access Watchdog");
-		th.setDaemon(true);
-		th.start();
-
-		// Resource respawn
-		th = new Thread(() -> {
-			while (Centuria.directorServer.isActive()) {
-				// Loop through all players
-				for (Player plr : getPlayers()) {
-					if (!plr.roomReady)
-						continue;
-
-					// Loop through the resources
-					String[] itms;
-					while (true) {
-						try {
-							itms = plr.respawnItems.keySet().toArray(t -> new String[t]);
-							break;
-						} catch (ConcurrentModificationException e) {
-						}
-					}
-					for (String id : itms) {
-						if (!plr.respawnItems.containsKey(id))
-							continue;
-
-						long respawn = plr.respawnItems.get(id);
-						if (!plr.roomReady)
-							break;
-
-						if (System.currentTimeMillis() >= respawn) {
-							plr.respawnItems.remove(id);
-
-							// Find object
-							NetworkedObject ent = NetworkedObjects.getObject(id);
-
-							// Respawn
-							XtWriter wr = new XtWriter();
-							wr.writeString("oi");
-							wr.writeInt(-1); // data prefix
-
-							// Object creation parameters
-							wr.writeString(id); // World object ID
-							wr.writeInt(978);
-							wr.writeString(""); // Owner ID
-
-							// Object info
-							wr.writeInt(0);
-							wr.writeLong(System.currentTimeMillis() / 1000);
-							wr.writeDouble(ent.locationInfo.position.x);
-							wr.writeDouble(ent.locationInfo.position.y);
-							wr.writeDouble(ent.locationInfo.position.z);
-							wr.writeDouble(ent.locationInfo.rotation.x);
-							wr.writeDouble(ent.locationInfo.rotation.y);
-							wr.writeDouble(ent.locationInfo.rotation.z);
-							wr.writeDouble(ent.locationInfo.rotation.w);
-							wr.add("0%0%0%0.0%0%0%0");
-							wr.writeString(""); // data suffix
-
-							if (plr.client != null && plr.client.isConnected())
-								plr.client.sendPacket(wr.encode());
-						}
-					}
-				}
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-				}
-			}
-		}, "Resource respawn thread");
-		th.setDaemon(true);
-		th.start();
+		// Movement tick
+		if (movementTicker != null)
+			movementTicker.start();
 	}
 
 	@Override
 	protected void onStop() {
+		loginPipeline.stop();
 	}
 
 	// Used to check permissions
@@ -718,15 +793,7 @@ public class GameServer extends BaseSmartfoxServer {
 	 * @return Player instance or null if offline
 	 */
 	public Player getPlayer(String accountID) {
-		while (true) {
-			try {
-				if (players.containsKey(accountID))
-					return players.get(accountID);
-				return null;
-			} catch (Exception e) {
-				continue;
-			}
-		}
+		return players.get(accountID);
 	}
 
 	@Override
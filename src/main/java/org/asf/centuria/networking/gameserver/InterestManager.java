@@ -0,0 +1,243 @@
+package org.asf.centuria.networking.gameserver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asf.centuria.entities.players.Player;
+
+/**
+ *
+ * Area-of-interest index, keeps a uniform grid of player positions per room so
+ * players only see the players near them. Players become visible to each
+ * other within the interest radius and stop being visible once they are
+ * further apart than the radius plus the hysteresis distance.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class InterestManager {
+
+	private static final Player[] NO_PLAYERS = new Player[0];
+
+	private double radius;
+	private double leaveRadius;
+	private double cellSize;
+
+	private ConcurrentHashMap<String, RoomGrid> rooms = new ConcurrentHashMap<String, RoomGrid>();
+	private ConcurrentHashMap<Player, TrackedPlayer> players = new ConcurrentHashMap<Player, TrackedPlayer>();
+
+	private static class RoomGrid {
+		public HashMap<Long, ArrayList<TrackedPlayer>> cells = new HashMap<Long, ArrayList<TrackedPlayer>>();
+		public int size;
+	}
+
+	private static class TrackedPlayer {
+		public Player player;
+		public String room;
+		public long cell;
+		public double x;
+		public double z;
+
+		// Players that this player can see, visibility is always mutual
+		public Set<TrackedPlayer> visible = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Creates an interest manager
+	 *
+	 * @param radius     Distance within which players see each other
+	 * @param hysteresis Extra distance players need to move apart before they
+	 *                   stop seeing each other
+	 */
+	public InterestManager(double radius, double hysteresis) {
+		if (radius <= 0 || hysteresis < 0)
+			throw new IllegalArgumentException("Invalid interest radius");
+		this.radius = radius;
+		this.leaveRadius = radius + hysteresis;
+		this.cellSize = leaveRadius;
+	}
+
+	/**
+	 * Retrieves the interest radius
+	 *
+	 * @return Distance within which players see each other
+	 */
+	public double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Updates the position of a player, spawns and despawns the players that
+	 * came into or went out of range
+	 *
+	 * @param player Player to update
+	 */
+	public void update(Player player) {
+		String room = player.room;
+		if (room == null) {
+			remove(player);
+			return;
+		}
+
+		// Move to the right room first
+		TrackedPlayer tracked = players.get(player);
+		if (tracked != null && !tracked.room.equals(room)) {
+			remove(player);
+			tracked = null;
+		}
+
+		ArrayList<TrackedPlayer[]> entered = new ArrayList<TrackedPlayer[]>();
+		ArrayList<TrackedPlayer[]> left = new ArrayList<TrackedPlayer[]>();
+		RoomGrid grid = rooms.computeIfAbsent(room, t -> new RoomGrid());
+		synchronized (grid) {
+			if (rooms.get(room) != grid) {
+				// Grid was removed while we waited
+				update(player);
+				return;
+			}
+			tracked = players.get(player);
+			if (tracked != null && !tracked.room.equals(room))
+				return;
+			if (tracked == null) {
+				tracked = new TrackedPlayer();
+				tracked.player = player;
+				tracked.room = room;
+				tracked.x = player.lastPos.x;
+				tracked.z = player.lastPos.z;
+				tracked.cell = cellOf(tracked.x, tracked.z);
+				players.put(player, tracked);
+				grid.cells.computeIfAbsent(tracked.cell, t -> new ArrayList<TrackedPlayer>()).add(tracked);
+				grid.size++;
+			} else {
+				tracked.x = player.lastPos.x;
+				tracked.z = player.lastPos.z;
+				long cell = cellOf(tracked.x, tracked.z);
+				if (cell != tracked.cell) {
+					removeFromCell(grid, tracked);
+					tracked.cell = cell;
+					grid.cells.computeIfAbsent(cell, t -> new ArrayList<TrackedPlayer>()).add(tracked);
+				}
+			}
+
+			// Players going out of range
+			for (TrackedPlayer other : tracked.visible) {
+				if (distanceSq(tracked, other) > leaveRadius * leaveRadius) {
+					tracked.visible.remove(other);
+					other.visible.remove(tracked);
+					left.add(new TrackedPlayer[] { tracked, other });
+				}
+			}
+
+			// Players coming into range, the cell size is at least the radius so only
+			// the neighbouring cells need to be checked
+			int cellX = (int) (tracked.cell >> 32);
+			int cellZ = (int) tracked.cell;
+			for (int x = cellX - 1; x <= cellX + 1; x++) {
+				for (int z = cellZ - 1; z <= cellZ + 1; z++) {
+					ArrayList<TrackedPlayer> cell = grid.cells.get(cellKey(x, z));
+					if (cell == null)
+						continue;
+					for (TrackedPlayer other : cell) {
+						if (other == tracked || tracked.visible.contains(other))
+							continue;
+						if (distanceSq(tracked, other) <= radius * radius) {
+							tracked.visible.add(other);
+							other.visible.add(tracked);
+							entered.add(new TrackedPlayer[] { tracked, other });
+						}
+					}
+				}
+			}
+		}
+
+		// Send the enter and leave packets outside the lock
+		for (TrackedPlayer[] pair : left) {
+			pair[0].player.destroyAt(pair[1].player);
+			pair[1].player.destroyAt(pair[0].player);
+		}
+		for (TrackedPlayer[] pair : entered) {
+			pair[0].player.syncTo(pair[1].player);
+			pair[1].player.syncTo(pair[0].player);
+		}
+	}
+
+	/**
+	 * Removes a player from the index, does not send any packets as players
+	 * leaving a room are removed from the whole room
+	 *
+	 * @param player Player to remove
+	 */
+	public void remove(Player player) {
+		TrackedPlayer tracked = players.remove(player);
+		if (tracked == null)
+			return;
+		RoomGrid grid = rooms.get(tracked.room);
+		if (grid == null)
+			return;
+		synchronized (grid) {
+			removeFromCell(grid, tracked);
+			for (TrackedPlayer other : tracked.visible)
+				other.visible.remove(tracked);
+			tracked.visible.clear();
+			if (--grid.size == 0)
+				rooms.remove(tracked.room);
+		}
+	}
+
+	/**
+	 * Checks if a player can see another player
+	 *
+	 * @param viewer Player that would see the other player
+	 * @param target Player to check
+	 * @return True if the target is within range of the viewer, false otherwise
+	 */
+	public boolean isVisible(Player viewer, Player target) {
+		TrackedPlayer tracked = players.get(viewer);
+		if (tracked == null)
+			return false;
+		TrackedPlayer other = players.get(target);
+		return other != null && tracked.visible.contains(other);
+	}
+
+	/**
+	 * Retrieves the players a player can see
+	 *
+	 * @param player Player to retrieve the visible players of
+	 * @return Array of Player instances
+	 */
+	public Player[] getVisiblePlayers(Player player) {
+		TrackedPlayer tracked = players.get(player);
+		if (tracked == null)
+			return NO_PLAYERS;
+		ArrayList<Player> visible = new ArrayList<Player>();
+		for (TrackedPlayer other : tracked.visible)
+			visible.add(other.player);
+		return visible.toArray(t -> new Player[t]);
+	}
+
+	private void removeFromCell(RoomGrid grid, TrackedPlayer tracked) {
+		ArrayList<TrackedPlayer> cell = grid.cells.get(tracked.cell);
+		if (cell == null)
+			return;
+		cell.remove(tracked);
+		if (cell.isEmpty())
+			grid.cells.remove(tracked.cell);
+	}
+
+	private long cellOf(double x, double z) {
+		return cellKey((int) Math.floor(x / cellSize), (int) Math.floor(z / cellSize));
+	}
+
+	private static long cellKey(int x, int z) {
+		return ((long) x << 32) | (z & 0xffffffffl);
+	}
+
+	private static double distanceSq(TrackedPlayer a, TrackedPlayer b) {
+		double x = a.x - b.x;
+		double z = a.z - b.z;
+		return x * x + z * z;
+	}
+
+}
@@ -0,0 +1,292 @@
+package org.asf.centuria.networking.gameserver;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
+import org.asf.centuria.networking.smartfox.SmartfoxClient;
+
+/**
+ *
+ * Runs the login work of the game server on a bounded pool of login workers.
+ * Only a limited amount of logins run at once, the rest wait in a first-come
+ * first-served queue so a reconnect storm after a restart does not hit the
+ * disk all at once. The time spent in each stage is recorded.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class LoginPipeline {
+
+	/**
+	 * Login stages
+	 */
+	public static enum Stage {
+
+		/**
+		 * Waiting in the login queue
+		 */
+		QUEUE,
+
+		/**
+		 * Token verification
+		 */
+		TOKEN,
+
+		/**
+		 * Loading the account
+		 */
+		ACCOUNT,
+
+		/**
+		 * Maintenance, ban, whitelist and VPN checks
+		 */
+		CHECKS,
+
+		/**
+		 * Module login events
+		 */
+		EVENTS,
+
+		/**
+		 * Creating the player session, notifying followers and loading blocked
+		 * players
+		 */
+		SESSION
+
+	}
+
+	/**
+	 * Login task
+	 */
+	public static interface LoginTask {
+		public void run(Ticket ticket) throws IOException;
+	}
+
+	/**
+	 * Tracks the stage a single login is in
+	 */
+	public class Ticket {
+		private volatile Stage stage = Stage.QUEUE;
+		private long stageStart = System.nanoTime();
+
+		private Ticket() {
+		}
+
+		/**
+		 * Retrieves the current stage
+		 *
+		 * @return Stage value
+		 */
+		public Stage getStage() {
+			return stage;
+		}
+
+		/**
+		 * Moves the login to the next stage
+		 *
+		 * @param stage Next stage
+		 */
+		public void next(Stage stage) {
+			finish();
+			this.stage = stage;
+		}
+
+		private void finish() {
+			long now = System.nanoTime();
+			stageTime[this.stage.ordinal()].add(now - stageStart);
+			stageStart = now;
+		}
+	}
+
+	// Logins waiting longer than this are logged with their queue position
+	private static final long QUEUE_LOG_DELAY = 1000;
+
+	private int concurrency;
+	private int queueSize;
+	private ThreadPoolExecutor workers;
+
+	private AtomicLong rejected = new AtomicLong();
+	private LongAdder logins = new LongAdder();
+	private LongAdder[] stageTime = new LongAdder[Stage.values().length];
+
+	/**
+	 * Creates a login pipeline
+	 *
+	 * @param concurrency Maximum amount of logins that run at once
+	 * @param queueSize   Maximum amount of logins that can wait in the queue
+	 */
+	public LoginPipeline(int concurrency, int queueSize) {
+		if (concurrency <= 0 || queueSize <= 0)
+			throw new IllegalArgumentException("Invalid login pipeline size");
+		this.concurrency = concurrency;
+		this.queueSize = queueSize;
+		for (int i = 0; i < stageTime.length; i++)
+			stageTime[i] = new LongAdder();
+
+		AtomicInteger threads = new AtomicInteger();
+		workers = new ThreadPoolExecutor(concurrency, concurrency, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(queueSize), r -> {
+					Thread th = new Thread(r, "Login Worker " + threads.incrementAndGet());
+					th.setDaemon(true);
+					return th;
+				});
+		workers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Runs a login, blocks until the login completes
+	 *
+	 * @param client Client that is logging in
+	 * @param task   Login task, called with a ticket in the TOKEN stage
+	 * @return True if the login ran, false if the queue is full or the client
+	 *         disconnected while waiting
+	 * @throws IOException If the login task fails
+	 */
+	public boolean run(SmartfoxClient client, LoginTask task) throws IOException {
+		Ticket ticket = new Ticket();
+		Future<Boolean> future;
+		try {
+			future = workers.submit(() -> {
+				if (!client.isConnected())
+					return false;
+				logins.increment();
+				ticket.next(Stage.TOKEN);
+				try {
+					task.run(ticket);
+				} finally {
+					ticket.finish();
+				}
+				return true;
+			});
+		} catch (RejectedExecutionException e) {
+			rejected.incrementAndGet();
+			return false;
+		}
+
+		// Wait for the login
+		try {
+			try {
+				return future.get(QUEUE_LOG_DELAY, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Still waiting, log the queue position
+				int position = getQueuePosition(future);
+				if (position != 0)
+					Centuria.logger.info(MarkerManager.getMarker("LOGIN"),
+							"Login from " + client.getAddress() + " is waiting in the login queue, position "
+									+ position + " of " + getQueued());
+				return future.get();
+			}
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			throw new IOException("Interrupted while waiting for login", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Retrieves the position of a login in the queue
+	 *
+	 * @param login Login future
+	 * @return Queue position or 0 if the login is not queued
+	 */
+	private int getQueuePosition(Future<?> login) {
+		int position = 1;
+		for (Runnable queued : workers.getQueue()) {
+			if (queued == login)
+				return position;
+			position++;
+		}
+		return 0;
+	}
+
+	/**
+	 * Retrieves the maximum amount of logins that run at once
+	 *
+	 * @return Login concurrency
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Retrieves the maximum amount of logins that can wait in the queue
+	 *
+	 * @return Queue size
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * Retrieves the amount of logins waiting in the queue
+	 *
+	 * @return Queued login count
+	 */
+	public int getQueued() {
+		return workers.getQueue().size();
+	}
+
+	/**
+	 * Retrieves the amount of logins that are running
+	 *
+	 * @return Running login count
+	 */
+	public int getRunning() {
+		return workers.getActiveCount();
+	}
+
+	/**
+	 * Retrieves the amount of logins rejected because the queue was full
+	 *
+	 * @return Rejected login count
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/**
+	 * Retrieves the amount of logins that ran
+	 *
+	 * @return Login count
+	 */
+	public long getLogins() {
+		return logins.sum();
+	}
+
+	/**
+	 * Retrieves the average time a login spent in a stage
+	 *
+	 * @param stage Login stage
+	 * @return Average time in milliseconds
+	 */
+	public double getAverageStageTime(Stage stage) {
+		long count = logins.sum();
+		if (count == 0)
+			return 0;
+		return stageTime[stage.ordinal()].sum() / (double) count / 1000000d;
+	}
+
+	/**
+	 * Stops the login workers
+	 */
+	public void stop() {
+		workers.shutdownNow();
+	}
+
+}
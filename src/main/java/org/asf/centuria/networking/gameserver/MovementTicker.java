@@ -0,0 +1,222 @@
+package org.asf.centuria.networking.gameserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
+import org.asf.centuria.entities.players.Player;
+import org.asf.centuria.networking.smartfox.PreparedPacket;
+import org.asf.centuria.packets.xt.gameserver.object.ObjectUpdatePacket;
+
+/**
+ *
+ * Fixed-rate movement tick, keeps the latest movement update of each player and
+ * sends the changed positions of a room to each room member as a single batch
+ * once per tick
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class MovementTicker {
+
+	private GameServer server;
+	private long interval;
+	private Thread thread;
+
+	// Latest-wins slots, one per player with a pending update
+	private ConcurrentHashMap<Player, PendingUpdate> pending = new ConcurrentHashMap<Player, PendingUpdate>();
+
+	// Metrics
+	private AtomicLong packetsSaved = new AtomicLong();
+	private volatile double packetsSavedPerSecond;
+
+	private static class PendingUpdate {
+		public ObjectUpdatePacket packet;
+		public String room;
+		public int updates;
+	}
+
+	private static class RoomUpdate {
+		public Player player;
+		public PreparedPacket packet;
+		public int updates;
+	}
+
+	/**
+	 * Creates a movement ticker
+	 *
+	 * @param server   Game server
+	 * @param tickRate Amount of ticks per second
+	 */
+	public MovementTicker(GameServer server, int tickRate) {
+		if (tickRate <= 0)
+			throw new IllegalArgumentException("Tick rate must be positive");
+		this.server = server;
+		this.interval = 1000000000l / tickRate;
+	}
+
+	/**
+	 * Starts the tick thread
+	 */
+	public synchronized void start() {
+		if (thread != null)
+			return;
+		thread = new Thread(this::run, "Movement Tick Thread");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues a movement update, replaces the pending update of the player
+	 *
+	 * @param player Player that moved
+	 * @param packet Movement packet
+	 */
+	public void queue(Player player, ObjectUpdatePacket packet) {
+		String room = player.room;
+		if (room == null)
+			return;
+		pending.compute(player, (plr, update) -> {
+			if (update == null || !room.equals(update.room)) {
+				update = new PendingUpdate();
+				update.room = room;
+			}
+			update.packet = packet;
+			update.updates++;
+			return update;
+		});
+	}
+
+	/**
+	 * Drops the pending update of a player, waits for a tick that is sending it.
+	 * Used before sending an update that bypasses the tick, the sender needs to
+	 * hold the player's sync lock until it is sent so an older position is not
+	 * sent after it.
+	 *
+	 * @param player Player to drop the update of
+	 */
+	public void discard(Player player) {
+		player.syncLock.lock();
+		try {
+			pending.remove(player);
+		} finally {
+			player.syncLock.unlock();
+		}
+	}
+
+	/**
+	 * Retrieves the total amount of packets saved by coalescing
+	 *
+	 * @return Amount of superseded position updates that were not sent
+	 */
+	public long getPacketsSaved() {
+		return packetsSaved.get();
+	}
+
+	/**
+	 * Retrieves the amount of packets saved per second, measured over the last
+	 * second
+	 *
+	 * @return Packets saved per second
+	 */
+	public double getPacketsSavedPerSecond() {
+		return packetsSavedPerSecond;
+	}
+
+	private void run() {
+		long next = System.nanoTime();
+		long nextMeasure = next + 1000000000l;
+		long lastSaved = 0;
+		while (Centuria.directorServer.isActive()) {
+			try {
+				tick();
+			} catch (Exception e) {
+				Centuria.logger.error(MarkerManager.getMarker("SMARTFOX"), "Movement tick failed", e);
+			}
+
+			// Update metrics
+			long now = System.nanoTime();
+			if (now >= nextMeasure) {
+				long saved = packetsSaved.get();
+				packetsSavedPerSecond = (saved - lastSaved) * 1000000000d / (now - nextMeasure + 1000000000l);
+				lastSaved = saved;
+				nextMeasure = now + 1000000000l;
+			}
+
+			// Wait for the next tick, skip ticks if we fell behind
+			next += interval;
+			if (next < now)
+				next = now;
+			long wait = next - System.nanoTime();
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+	}
+
+	private void tick() throws IOException {
+		if (pending.isEmpty())
+			return;
+
+		// Collect the pending updates by room, the sync locks of the players are
+		// held until their updates are sent so actions and teleports are not
+		// overtaken
+		HashMap<String, ArrayList<RoomUpdate>> rooms = new HashMap<String, ArrayList<RoomUpdate>>();
+		ArrayList<Player> locked = new ArrayList<Player>();
+		try {
+			for (Player player : pending.keySet()) {
+				player.syncLock.lock();
+				PendingUpdate update = pending.remove(player);
+				if (update == null || !update.room.equals(player.room)
+						|| server.getPlayer(player.account.getAccountID()) != player) {
+					// Moved, left or already sent
+					player.syncLock.unlock();
+					continue;
+				}
+				locked.add(player);
+				RoomUpdate roomUpdate = new RoomUpdate();
+				roomUpdate.player = player;
+				roomUpdate.packet = PreparedPacket.of(update.packet);
+				roomUpdate.updates = update.updates;
+				rooms.computeIfAbsent(update.room, t -> new ArrayList<RoomUpdate>()).add(roomUpdate);
+			}
+
+			// Send one batch to each room member
+			long saved = 0;
+			ArrayList<PreparedPacket> batch = new ArrayList<PreparedPacket>();
+			for (Map.Entry<String, ArrayList<RoomUpdate>> room : rooms.entrySet()) {
+				for (Player member : server.getPlayersInRoom(room.getKey())) {
+					batch.clear();
+					int updates = 0;
+					for (RoomUpdate update : room.getValue()) {
+						if (!ObjectUpdatePacket.shouldSync(update.player, member))
+							continue;
+						batch.add(update.packet);
+						updates += update.updates;
+					}
+					if (batch.isEmpty())
+						continue;
+					member.client.sendPacket(batch.size() == 1 ? batch.get(0) : PreparedPacket.concat(batch));
+
+					// Only superseded updates are saved, each batched position is still sent
+					saved += updates - batch.size();
+				}
+			}
+			if (saved != 0)
+				packetsSaved.addAndGet(saved);
+		} finally {
+			for (Player player : locked)
+				player.syncLock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+package org.asf.centuria.networking.gameserver;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asf.centuria.entities.players.Player;
+
+/**
+ *
+ * Online player registry, indexes players by account ID and by room so room
+ * operations only need to look at the players in that room
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class PlayerRegistry {
+
+	private static final Player[] NO_PLAYERS = new Player[0];
+
+	private ConcurrentHashMap<String, Player> players = new ConcurrentHashMap<String, Player>();
+
+	// Room members, the arrays are replaced on change so they can be iterated
+	// without locking or copying
+	private ConcurrentHashMap<String, Player[]> rooms = new ConcurrentHashMap<String, Player[]>();
+	private Object roomLock = new Object();
+
+	/**
+	 * Adds a player, replaces any player with the same account ID
+	 *
+	 * @param player Player to add
+	 */
+	public void add(Player player) {
+		synchronized (roomLock) {
+			Player old = players.put(player.account.getAccountID(), player);
+			if (old != null && old != player)
+				removeMember(old, old.room);
+			if (player.room != null)
+				addMember(player, player.room);
+		}
+	}
+
+	/**
+	 * Removes a player by account ID
+	 *
+	 * @param player Player to remove
+	 * @return True if a player with the account ID was registered, false
+	 *         otherwise
+	 */
+	public boolean remove(Player player) {
+		synchronized (roomLock) {
+			removeMember(player, player.room);
+			Player old = players.remove(player.account.getAccountID());
+			if (old == null)
+				return false;
+			if (old != player)
+				removeMember(old, old.room);
+			return true;
+		}
+	}
+
+	/**
+	 * Moves a player to a different room, this updates Player.room and the room
+	 * index at once
+	 *
+	 * @param player Player to move
+	 * @param room   New room identifier (or null)
+	 */
+	public void setRoom(Player player, String room) {
+		synchronized (roomLock) {
+			if (player.room != null)
+				removeMember(player, player.room);
+			player.room = room;
+			if (room != null && players.get(player.account.getAccountID()) == player)
+				addMember(player, room);
+		}
+	}
+
+	/**
+	 * Retrieves a player by account ID
+	 *
+	 * @param accountID Player account ID
+	 * @return Player instance or null
+	 */
+	public Player get(String accountID) {
+		return players.get(accountID);
+	}
+
+	/**
+	 * Retrieves the amount of online players
+	 *
+	 * @return Player count
+	 */
+	public int size() {
+		return players.size();
+	}
+
+	/**
+	 * Retrieves all online players
+	 *
+	 * @return Array of Player instances
+	 */
+	public Player[] getPlayers() {
+		return players.values().toArray(t -> new Player[t]);
+	}
+
+	/**
+	 * Retrieves the players in a room, the returned array is shared and must not
+	 * be modified
+	 *
+	 * @param room Room identifier
+	 * @return Array of Player instances
+	 */
+	public Player[] getPlayersInRoom(String room) {
+		if (room == null)
+			return NO_PLAYERS;
+		return rooms.getOrDefault(room, NO_PLAYERS);
+	}
+
+	private void addMember(Player player, String room) {
+		Player[] members = rooms.getOrDefault(room, NO_PLAYERS);
+		for (Player member : members) {
+			if (member == player)
+				return;
+		}
+		Player[] newMembers = Arrays.copyOf(members, members.length + 1);
+		newMembers[members.length] = player;
+		rooms.put(room, newMembers);
+	}
+
+	private void removeMember(Player player, String room) {
+		if (room == null)
+			return;
+		Player[] members = rooms.get(room);
+		if (members == null)
+			return;
+		for (int i = 0; i < members.length; i++) {
+			if (members[i] == player) {
+				if (members.length == 1) {
+					rooms.remove(room);
+					return;
+				}
+
+				// Copy without the player
+				Player[] newMembers = new Player[members.length - 1];
+				System.arraycopy(members, 0, newMembers, 0, i);
+				System.arraycopy(members, i + 1, newMembers, i, members.length - i - 1);
+				rooms.put(room, newMembers);
+				return;
+			}
+		}
+	}
+
+}
@@ -15,6 +15,8 @@ import org.asf.centuria.accounts.AccountManager;
 import org.asf.centuria.accounts.CenturiaAccount;
 import org.asf.centuria.entities.players.Player;
 import org.asf.centuria.packets.xt.gameserver.room.RoomJoinPacket;
+import org.asf.centuria.security.TokenVerifier;
+import org.asf.centuria.security.VerifiedToken;
 import org.asf.centuria.social.SocialEntry;
 import org.asf.centuria.social.SocialManager;
 import org.asf.rats.ConnectiveHTTPServer;
@@ -22,7 +24,6 @@ import org.asf.rats.processors.HttpUploadProcessor;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
 public class FallbackAPIProcessor extends HttpUploadProcessor {
@@ -503,27 +504,14 @@ public class FallbackAPIProcessor extends HttpUploadProcessor {
 		// Parse JWT payload
 		String token = this.getHeader("Authorization").substring("Bearer ".length());
 
-		// Verify signature
-		String verifyD = token.split("\\.")[0] + "." + token.split("\\.")[1];
-		String sig = token.split("\\.")[2];
-		if (!Centuria.verify(verifyD.getBytes("UTF-8"), Base64.getUrlDecoder().decode(sig))) {
+		// Verify signature and expiry
+		VerifiedToken jwt = TokenVerifier.verify(token);
+		if (jwt == null || jwt.getAccountID() == null) {
 			return null;
 		}
 
-		// Verify expiry
-		JsonObject jwtPl = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-		if (!jwtPl.has("exp") || jwtPl.get("exp").getAsLong() < System.currentTimeMillis() / 1000) {
-			return null;
-		}
-
-		JsonObject payload = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-
 		// Find account
-		CenturiaAccount acc = manager.getAccount(payload.get("uuid").getAsString());
+		CenturiaAccount acc = manager.getAccount(jwt.getAccountID());
 
 		return acc;
 	}
@@ -6,6 +6,7 @@ import java.util.HashMap;
 
 import org.asf.centuria.Centuria;
 import org.asf.centuria.entities.players.Player;
+import org.asf.centuria.networking.gameserver.MovementTicker;
 import org.asf.centuria.packets.xt.gameserver.inventory.InventoryItemDownloadPacket;
 import org.asf.rats.processors.HttpUploadProcessor;
 
@@ -47,6 +48,9 @@ public class ListPlayersHandler extends HttpUploadProcessor {
 			JsonObject mapData = new JsonObject();
 			maps.forEach((k, v) -> mapData.addProperty(k, v));
 			response.add("maps", mapData);
+			MovementTicker ticker = Centuria.gameServer.getMovementTicker();
+			if (ticker != null)
+				response.addProperty("movementPacketsSavedPerSecond", Math.round(ticker.getPacketsSavedPerSecond()));
 			setBody("text/json", response.toString());
 			getResponse().setHeader("Access-Control-Allow-Origin", "https://aerialworks.ddns.net");
 		} catch (Exception e) {
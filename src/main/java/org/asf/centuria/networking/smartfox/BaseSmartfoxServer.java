@@ -3,16 +3,33 @@ package org.asf.centuria.networking.smartfox;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.MarkerManager;
 import org.asf.centuria.Centuria;
 import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+import org.asf.centuria.util.ConnectionThreads;
 
 public abstract class BaseSmartfoxServer {
 
 	private ServerSocket server;
-	private ArrayList<ISmartfoxPacket> packets = new ArrayList<ISmartfoxPacket>();
+	private SmartfoxPacketRegistry packets = new SmartfoxPacketRegistry();
 	private boolean setupComplete = false;
 
+	// Selector transport
+	private int eventLoopCount = 0;
+	private SmartfoxEventLoop[] eventLoops;
+	private ExecutorService handshakeWorkers;
+	private ExecutorService packetWorkers;
+
+	// Outbound compression
+	private int compressionThreshold = 0;
+	private boolean compressAllClients = false;
+
 	public BaseSmartfoxServer(ServerSocket socket) {
 		server = socket;
 
@@ -31,6 +48,21 @@ public abstract class BaseSmartfoxServer {
 	 */
 	protected abstract SmartfoxClient createSocketClient(Socket client);
 
+	/**
+	 * Called to create a non-blocking smartfox client, used by the selector
+	 * transport
+	 * 
+	 * @since Beta 1.5.4
+	 * @param channel       Client channel
+	 * @param eventLoop     Event loop the channel is assigned to
+	 * @param packetWorkers Executor used to handle packets
+	 * @return ChannelSmartfoxClient instance
+	 */
+	protected ChannelSmartfoxClient createChannelClient(SocketChannel channel, SmartfoxEventLoop eventLoop,
+			ExecutorService packetWorkers) {
+		return new ChannelSmartfoxClient(channel, this, eventLoop, packetWorkers);
+	}
+
 	/**
 	 * Registers the server packets (internal)
 	 */
@@ -64,13 +96,88 @@ public abstract class BaseSmartfoxServer {
 	protected void registerPacket(ISmartfoxPacket packet) {
 		if (setupComplete)
 			throw new IllegalStateException("Registry has been locked");
-		packets.add(packet);
+		packets.register(packet);
+	}
+
+	/**
+	 * Enables the non-blocking selector transport, clients will be served by a
+	 * small pool of event loops instead of a thread per connection. Needs to be
+	 * called before start(), the server socket needs to be created from a
+	 * ServerSocketChannel else the blocking transport is used.
+	 * 
+	 * @since Beta 1.5.4
+	 * @param eventLoops Amount of event loop threads, 0 to use the amount of
+	 *                   processors
+	 */
+	public void useSelectorTransport(int eventLoops) {
+		if (eventLoops <= 0)
+			eventLoops = Runtime.getRuntime().availableProcessors();
+		eventLoopCount = eventLoops;
+	}
+
+	/**
+	 * Checks if the selector transport is in use
+	 * 
+	 * @since Beta 1.5.4
+	 * @return True if clients are served by event loops, false if each client has
+	 *         its own thread
+	 */
+	public boolean isSelectorTransport() {
+		return eventLoopCount > 0 && server != null && server.getChannel() != null;
+	}
+
+	/**
+	 * Enables compression of large outbound packets, compressed packets use the
+	 * same '$'-prefixed Base64 gzip framing as compressed client packets
+	 * 
+	 * @since Beta 1.5.4
+	 * @param threshold  Minimum packet size in bytes for packets to be compressed,
+	 *                   0 to disable compression
+	 * @param allClients True to compress packets for all clients, false to only
+	 *                   compress packets for clients that sent a compressed
+	 *                   packet themselves
+	 */
+	public void useOutboundCompression(int threshold, boolean allClients) {
+		compressionThreshold = threshold;
+		compressAllClients = allClients;
+	}
+
+	/**
+	 * Retrieves the outbound compression threshold
+	 * 
+	 * @since Beta 1.5.4
+	 * @return Minimum packet size in bytes for packets to be compressed, 0 if
+	 *         compression is disabled
+	 */
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Checks if packets are compressed for all clients without them sending a
+	 * compressed packet first
+	 * 
+	 * @since Beta 1.5.4
+	 * @return True if compression is assumed to be supported by all clients
+	 */
+	public boolean compressesAllClients() {
+		return compressAllClients;
 	}
 
 	/**
 	 * Runs the server
 	 */
 	public void start() {
+		if (eventLoopCount > 0 && server.getChannel() == null) {
+			Centuria.logger.warn(MarkerManager.getMarker("SMARTFOX"), "Server socket of "
+					+ getClass().getSimpleName() + " has no channel, falling back to the blocking transport");
+			eventLoopCount = 0;
+		}
+		if (eventLoopCount > 0) {
+			startSelectorTransport();
+			return;
+		}
+
 		Thread serverProcessor = new Thread(() -> {
 			// Run start code
 			onStart();
@@ -93,10 +200,99 @@ public abstract class BaseSmartfoxServer {
 		serverProcessor.start();
 	}
 
+	private void startSelectorTransport() {
+		String name = getClass().getSimpleName();
+
+		// Start event loops
+		eventLoops = new SmartfoxEventLoop[eventLoopCount];
+		for (int i = 0; i < eventLoops.length; i++) {
+			try {
+				eventLoops[i] = new SmartfoxEventLoop("Smartfox Event Loop " + (i + 1) + ": " + name);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			eventLoops[i].start();
+		}
+
+		// Handshakes perform blocking reads so they get their own pool
+		AtomicInteger handshakeThreads = new AtomicInteger();
+		handshakeWorkers = Executors.newCachedThreadPool(r -> ConnectionThreads
+				.create("Smartfox Handshake Thread " + handshakeThreads.incrementAndGet() + ": " + name, r));
+		AtomicInteger packetThreads = new AtomicInteger();
+		packetWorkers = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+				r -> {
+					Thread th = new Thread(r, "Smartfox Packet Worker " + packetThreads.incrementAndGet() + ": " + name);
+					th.setDaemon(true);
+					return th;
+				});
+
+		Thread serverProcessor = new Thread(() -> {
+			// Run start code
+			onStart();
+
+			// Server loop
+			ServerSocketChannel channel = server.getChannel();
+			int next = 0;
+			while (server != null) {
+				SocketChannel client;
+				try {
+					client = channel.accept();
+				} catch (IOException ex) {
+					server = null;
+					break;
+				}
+				try {
+					runChannelClient(client, eventLoops[next]);
+					next = (next + 1) % eventLoops.length;
+				} catch (IOException ex) {
+					// Client went away right after connecting
+					try {
+						client.close();
+					} catch (IOException e) {
+					}
+				}
+			}
+
+			// Shutdown
+			for (SmartfoxEventLoop loop : eventLoops)
+				loop.stop();
+			handshakeWorkers.shutdown();
+			packetWorkers.shutdown();
+			onStop();
+		}, "Smartfox Server Thread: " + name);
+		serverProcessor.setDaemon(true);
+		serverProcessor.start();
+	}
+
+	// Non-blocking client system
+	private void runChannelClient(SocketChannel channel, SmartfoxEventLoop loop) throws IOException {
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		ChannelSmartfoxClient client = createChannelClient(channel, loop, packetWorkers);
+		loop.register(client);
+
+		// Run the handshake, the event loop takes over once its done
+		handshakeWorkers.execute(() -> {
+			try {
+				// Run start code
+				startClient(client);
+
+				// Begin handling packets
+				if (client.isConnected())
+					client.beginDispatch();
+			} catch (Exception e) {
+				if (!(e instanceof IOException)) {
+					Centuria.logger.error("Connection died!", e);
+				}
+				client.closeClient();
+			}
+		});
+	}
+
 	// Client system
 	private void runClient(Socket clientSocket) {
 		// Start the client thread
-		Thread th = new Thread(() -> {
+		ConnectionThreads.start("Smartfox Client Thread: " + clientSocket, () -> {
 			SmartfoxClient client = createSocketClient(clientSocket);
 
 			// Non-debug
@@ -164,9 +360,7 @@ public abstract class BaseSmartfoxServer {
 					client.stop();
 				}
 			}
-		}, "Smartfox Client Thread: " + clientSocket);
-		th.setDaemon(true);
-		th.start();
+		});
 	}
 
 	/**
@@ -230,6 +424,33 @@ public abstract class BaseSmartfoxServer {
 		client.sendPacket(packet);
 	}
 
+	/**
+	 * Sends a packet to multiple clients, the packet is only built once
+	 *
+	 * @since Beta 1.5.4
+	 * @param packet     Packet to send
+	 * @param recipients Clients to send the packet to
+	 * @return Amount of clients the packet was sent to
+	 */
+	public int broadcast(ISmartfoxPacket packet, Iterable<? extends SmartfoxClient> recipients) {
+		PreparedPacket prepared = null;
+		int sent = 0;
+		for (SmartfoxClient client : recipients) {
+			if (prepared == null) {
+				// Build on first use
+				try {
+					prepared = PreparedPacket.of(packet);
+				} catch (IOException e) {
+					Centuria.logger.error(MarkerManager.getMarker("SMARTFOX"), "Failed to build broadcast packet", e);
+					return 0;
+				}
+			}
+			client.sendPacket(prepared);
+			sent++;
+		}
+		return sent;
+	}
+
 	/**
 	 * Reads a single packet from a client
 	 *
@@ -258,21 +479,7 @@ public abstract class BaseSmartfoxServer {
 	 * @throws IOException If parsing fails
 	 */
 	protected <T extends ISmartfoxPacket> T parsePacketPayload(String packet, Class<T> packetType) throws IOException {
-		// Find a packet
-		for (ISmartfoxPacket pkt : packets) {
-			if (pkt.canParse(packet) && packetType.isAssignableFrom(pkt.getClass())) {
-				// Found a compatible packet, instantiate it and parse
-				@SuppressWarnings("unchecked")
-				T res = (T) pkt.instantiate();
-				if (!res.parse(packet))
-					continue; // Apparently this packet doesnt support the payload, odd
-
-				return res;
-			}
-		}
-
-		// Could not find a packet that matched
-		return null;
+		return packets.parse(packet, packetType);
 	}
 
 	/**
@@ -283,21 +490,7 @@ public abstract class BaseSmartfoxServer {
 	 * @return True if handled successfully, false otherwise
 	 */
 	public boolean handlePacket(String packet, SmartfoxClient client) throws IOException {
-		// Find a packet
-		for (ISmartfoxPacket pkt : packets) {
-			if (pkt.canParse(packet)) {
-				// Found a compatible packet, instantiate it and parse
-				ISmartfoxPacket res = pkt.instantiate();
-				if (!res.parse(packet))
-					continue; // Apparently this packet doesnt support the payload, odd
-
-				// Handle it
-				if (res.handle(client))
-					return true; // It was handled, lets return true and end the loop
-			}
-		}
-
-		return false;
+		return packets.handle(packet, client);
 	}
 
 	/**
@@ -0,0 +1,365 @@
+package org.asf.centuria.networking.smartfox;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
+import org.asf.centuria.data.XtWriter;
+import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+
+/**
+ * 
+ * Non-blocking smartfox client, reads and writes are driven by a shared
+ * {@link SmartfoxEventLoop}, packets are handled by the server's packet workers
+ * 
+ * @since Beta 1.5.4
+ *
+ */
+public class ChannelSmartfoxClient extends SmartfoxClient {
+
+	// Marker placed in the inbound queue when the channel closes
+	private static final String CLOSED_MARKER = new String("<closed>");
+
+	// Maximum amount of packets handled in one pass before yielding the worker
+	private static final int MAX_PACKETS_PER_PASS = 64;
+
+	// Maximum amount of unhandled packets before the client is disconnected
+	private static final int MAX_INBOUND_PACKETS = 1024;
+
+	private SocketChannel channel;
+	private BaseSmartfoxServer server;
+	private SmartfoxEventLoop eventLoop;
+	private Executor packetWorkers;
+	private SelectionKey key;
+	private String address;
+
+	// Inbound
+	private SmartfoxFrameDecoder decoder = new SmartfoxFrameDecoder();
+	// Limited by MAX_INBOUND_PACKETS when reading, the closed marker must always
+	// fit
+	private LinkedBlockingQueue<String> inbound = new LinkedBlockingQueue<String>();
+	private AtomicBoolean dispatching = new AtomicBoolean();
+	private AtomicBoolean channelClosed = new AtomicBoolean();
+	private volatile boolean handshakeComplete;
+
+	// Outbound
+	private ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+	private ArrayDeque<ByteBuffer> writing = new ArrayDeque<ByteBuffer>();
+	private AtomicBoolean writeScheduled = new AtomicBoolean();
+	private AtomicInteger pendingWrites = new AtomicInteger();
+
+	public ChannelSmartfoxClient(SocketChannel channel, BaseSmartfoxServer server, SmartfoxEventLoop eventLoop,
+			Executor packetWorkers) {
+		this.channel = channel;
+		this.server = server;
+		this.eventLoop = eventLoop;
+		this.packetWorkers = packetWorkers;
+
+		try {
+			InetSocketAddress ip = (InetSocketAddress) channel.getRemoteAddress();
+			address = ip.getAddress().getHostAddress();
+		} catch (IOException e) {
+			address = "unknown";
+		}
+	}
+
+	/**
+	 * Avoid usage from the gameserver API, this is non-standard
+	 */
+	public SocketChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	protected void stop() {
+		channel = null;
+		inbound.add(CLOSED_MARKER);
+	}
+
+	@Override
+	public boolean isConnected() {
+		return channel != null;
+	}
+
+	@Override
+	public void disconnect() {
+		flush(3);
+		closeChannel();
+		server.clientDisconnect(this);
+		stop();
+	}
+
+	@Override
+	public void sendPacket(ISmartfoxPacket packet) {
+		try {
+			// Build XT packets directly into a pooled writer
+			XtWriter writer = buildPooled(packet);
+			if (writer == null) {
+				queueFrame(encodeFrame(packet.build()), OutboundPolicy.of(packet));
+				return;
+			}
+			try {
+				queueFrame(ByteBuffer.wrap(compressIfNeeded(writer.encodeFrame())), OutboundPolicy.of(packet));
+			} finally {
+				writer.release();
+			}
+		} catch (Exception e) {
+		}
+	}
+
+	@Override
+	public void sendPacket(String packet) {
+		if (channel == null)
+			return;
+		queueFrame(encodeFrame(packet), OutboundPolicy.RELIABLE);
+	}
+
+	@Override
+	public void sendPacket(XtWriter packet) {
+		if (channel == null)
+			return;
+		queueFrame(ByteBuffer.wrap(compressIfNeeded(packet.encodeFrame())), OutboundPolicy.RELIABLE);
+	}
+
+	@Override
+	public void sendPacket(PreparedPacket packet) {
+		if (channel == null)
+			return;
+		queueFrame(packet.buffer(this), packet.getPolicy());
+	}
+
+	private ByteBuffer encodeFrame(String packet) {
+		byte[] payload = packet.getBytes(StandardCharsets.UTF_8);
+		return ByteBuffer.wrap(compressIfNeeded(Arrays.copyOf(payload, payload.length + 1)));
+	}
+
+	private void queueFrame(ByteBuffer buffer, OutboundPolicy policy) {
+		if (!getOutboundQueue().offer(buffer.remaining(), policy == OutboundPolicy.DROPPABLE))
+			return;
+
+		// Queue for the event loop
+		pendingWrites.incrementAndGet();
+		outbound.add(buffer);
+		if (writeScheduled.compareAndSet(false, true)) {
+			eventLoop.execute(() -> {
+				try {
+					writePending();
+				} catch (Exception e) {
+					channelClosed();
+				}
+			});
+		}
+	}
+
+	@Override
+	public <T extends ISmartfoxPacket> T readPacket(Class<T> packetType) throws IOException {
+		return server.<T>readPacket(this, packetType);
+	}
+
+	@Override
+	public BaseSmartfoxServer getServer() {
+		return server;
+	}
+
+	@Override
+	public String readRawPacket() throws IOException {
+		try {
+			String payload = inbound.take();
+			if (payload == CLOSED_MARKER) {
+				// Keep the marker for other readers
+				inbound.add(CLOSED_MARKER);
+				throw new IOException("Stream closed");
+			}
+			return payload;
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted", e);
+		}
+	}
+
+	@Override
+	public String getAddress() {
+		return address;
+	}
+
+	@Override
+	protected void closeClient() {
+		closeChannel();
+		if (channel != null) {
+			server.clientDisconnect(this);
+			stop();
+		}
+	}
+
+	@Override
+	protected void evict() {
+		// Close the channel, the reader handles the disconnect
+		eventLoop.execute(this::channelClosed);
+	}
+
+	/**
+	 * Waits for all queued packets to be written
+	 *
+	 * @param timeout Wait timeout length in seconds
+	 */
+	public void flush(int timeout) {
+		int i = 0;
+		while (pendingWrites.get() > 0 && !channelClosed.get()) {
+			try {
+				if (i < timeout * 10)
+					i++;
+				else
+					break;
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+
+	/**
+	 * Called once the server finished the handshake, starts handing packets to
+	 * the packet workers
+	 */
+	void beginDispatch() {
+		handshakeComplete = true;
+		scheduleDispatch();
+	}
+
+	/**
+	 * Called by the event loop once the channel is registered
+	 */
+	void registered(SelectionKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Called by the event loop when the channel has data available
+	 */
+	void readFrames() throws IOException {
+		SocketChannel channel = this.channel;
+		if (channel == null)
+			throw new IOException("Stream closed");
+		int read = decoder.readFrom(channel);
+		if (read == -1)
+			throw new IOException("Stream closed");
+
+		// Queue all complete packets
+		String payload;
+		while ((payload = decoder.nextFrame()) != null) {
+			if (inbound.size() >= MAX_INBOUND_PACKETS) {
+				// Client sends packets faster than they can be handled
+				Centuria.logger.warn(MarkerManager.getMarker("SMARTFOX"),
+						"Disconnecting " + address + ": too many unhandled packets");
+				throw new IOException("Inbound packet queue full");
+			}
+			inbound.add(payload);
+		}
+		if (decoder.hasReceivedCompressedFrame())
+			compressedPacketReceived();
+
+		// Hand the packets to the workers
+		if (handshakeComplete)
+			scheduleDispatch();
+	}
+
+	/**
+	 * Called by the event loop to write queued packets
+	 */
+	void writePending() throws IOException {
+		writeScheduled.set(false);
+		SocketChannel channel = this.channel;
+		if (channel == null || key == null)
+			return;
+
+		// Collect queued packets
+		ByteBuffer buffer;
+		while ((buffer = outbound.poll()) != null)
+			writing.add(buffer);
+
+		// Gathered write
+		while (!writing.isEmpty()) {
+			channel.write(writing.toArray(t -> new ByteBuffer[t]));
+			while (!writing.isEmpty() && !writing.peek().hasRemaining()) {
+				getOutboundQueue().sent(writing.poll().limit());
+				pendingWrites.decrementAndGet();
+			}
+			if (!writing.isEmpty()) {
+				// Socket buffer is full, wait for the channel to become writable
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				return;
+			}
+		}
+		if (key.isValid())
+			key.interestOps(SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Called when the remote end closed the channel or the channel failed
+	 */
+	void channelClosed() {
+		if (!channelClosed.compareAndSet(false, true))
+			return;
+		if (key != null)
+			key.cancel();
+		closeChannel();
+
+		// Inform the reader
+		inbound.add(CLOSED_MARKER);
+		if (handshakeComplete)
+			scheduleDispatch();
+	}
+
+	private void closeChannel() {
+		SocketChannel channel = this.channel;
+		try {
+			if (channel != null)
+				channel.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private void scheduleDispatch() {
+		if (!inbound.isEmpty() && dispatching.compareAndSet(false, true))
+			packetWorkers.execute(this::dispatchPackets);
+	}
+
+	private void dispatchPackets() {
+		int handled = 0;
+		String data;
+		while ((data = inbound.poll()) != null) {
+			if (data == CLOSED_MARKER) {
+				// Disconnected
+				closeClient();
+				return;
+			}
+
+			try {
+				server.handle(data, this);
+			} catch (Exception e) {
+				if (!(e instanceof IOException)) {
+					Centuria.logger.error("Connection died!", e);
+				}
+				closeClient();
+				return;
+			}
+
+			// Yield to other clients if this one is flooding
+			if (++handled >= MAX_PACKETS_PER_PASS)
+				break;
+		}
+		dispatching.set(false);
+		scheduleDispatch();
+	}
+
+}
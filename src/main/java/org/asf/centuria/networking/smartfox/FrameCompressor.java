@@ -0,0 +1,93 @@
+package org.asf.centuria.networking.smartfox;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ *
+ * Compresses outbound smartfox packets into '$'-prefixed Base64 gzip frames,
+ * the same framing clients use for compressed packets they send to the server
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class FrameCompressor {
+
+	private static final byte[] GZIP_HEADER = new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+			(byte) 0xff };
+
+	private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+
+	private static final ThreadLocal<FrameCompressor> compressors = ThreadLocal
+			.withInitial(() -> new FrameCompressor());
+
+	private Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private CRC32 crc = new CRC32();
+	private byte[] buffer = new byte[8192];
+
+	private FrameCompressor() {
+	}
+
+	/**
+	 * Compresses a packet frame
+	 *
+	 * @param frame  Packet bytes including the null terminator
+	 * @param length Frame length including the null terminator
+	 * @return Compressed frame including the null terminator or null if
+	 *         compressing does not make the frame smaller
+	 */
+	public static byte[] compress(byte[] frame, int length) {
+		return compressors.get().compressFrame(frame, length);
+	}
+
+	private byte[] compressFrame(byte[] frame, int length) {
+		int payloadLength = length - 1;
+
+		// Deflate the payload behind the gzip header
+		deflater.reset();
+		deflater.setInput(frame, 0, payloadLength);
+		deflater.finish();
+		System.arraycopy(GZIP_HEADER, 0, buffer, 0, GZIP_HEADER.length);
+		int size = GZIP_HEADER.length;
+		while (!deflater.finished()) {
+			if (size == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			size += deflater.deflate(buffer, size, buffer.length - size);
+		}
+
+		// Trailer
+		crc.reset();
+		crc.update(frame, 0, payloadLength);
+		if (buffer.length - size < 8)
+			buffer = Arrays.copyOf(buffer, buffer.length + 8);
+		writeInt(buffer, size, (int) crc.getValue());
+		writeInt(buffer, size + 4, payloadLength);
+		size += 8;
+
+		// Encode, unless Base64 makes it larger than the original
+		byte[] output = null;
+		int encodedLength = 4 * ((size + 2) / 3) + 2;
+		if (encodedLength < length) {
+			ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(buffer, 0, size));
+			output = new byte[encodedLength];
+			output[0] = '$';
+			encoded.get(output, 1, encoded.remaining());
+		}
+
+		// Do not keep huge buffers around
+		if (buffer.length > MAX_KEPT_BUFFER_SIZE)
+			buffer = new byte[8192];
+		return output;
+	}
+
+	private static void writeInt(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) value;
+		buffer[offset + 1] = (byte) (value >> 8);
+		buffer[offset + 2] = (byte) (value >> 16);
+		buffer[offset + 3] = (byte) (value >> 24);
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.asf.centuria.networking.smartfox;
+
+/**
+ *
+ * Implemented by packets that choose their outbound policy per instance,
+ * takes priority over the policy registered for the packet type
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public interface IOutboundPolicyProvider {
+
+	/**
+	 * Retrieves the outbound policy of this packet
+	 *
+	 * @return OutboundPolicy value
+	 */
+	public OutboundPolicy getOutboundPolicy();
+
+}
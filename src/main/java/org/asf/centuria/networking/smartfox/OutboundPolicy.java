@@ -0,0 +1,53 @@
+package org.asf.centuria.networking.smartfox;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+
+/**
+ *
+ * Outbound queueing policy of a packet type, decides what happens to a packet
+ * when the client it is sent to is lagging behind
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public enum OutboundPolicy {
+
+	/**
+	 * Always delivered (default)
+	 */
+	RELIABLE,
+
+	/**
+	 * Discarded when the client is lagging behind, for packets that are
+	 * superseded by newer ones such as movement
+	 */
+	DROPPABLE;
+
+	private static Map<Class<?>, OutboundPolicy> policies = new ConcurrentHashMap<Class<?>, OutboundPolicy>();
+
+	/**
+	 * Assigns the policy of a packet type
+	 *
+	 * @param type   Packet class
+	 * @param policy Outbound policy
+	 */
+	public static void register(Class<? extends ISmartfoxPacket> type, OutboundPolicy policy) {
+		policies.put(type, policy);
+	}
+
+	/**
+	 * Retrieves the policy of a packet
+	 *
+	 * @param packet Packet instance
+	 * @return OutboundPolicy value
+	 */
+	public static OutboundPolicy of(ISmartfoxPacket packet) {
+		if (packet instanceof IOutboundPolicyProvider)
+			return ((IOutboundPolicyProvider) packet).getOutboundPolicy();
+		return policies.getOrDefault(packet.getClass(), RELIABLE);
+	}
+
+}
@@ -0,0 +1,206 @@
+package org.asf.centuria.networking.smartfox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.asf.centuria.data.XtWriter;
+import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+
+/**
+ *
+ * Pre-built smartfox packet, holds the encoded packet so it can be sent to
+ * many clients without building it again for each of them
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class PreparedPacket {
+
+	// UTF-8 packet bytes including the null terminator, never modified
+	private final byte[] frame;
+	private String content;
+	private OutboundPolicy policy = OutboundPolicy.RELIABLE;
+
+	// Compressed frame, the frame itself if compressing does not help
+	private volatile byte[] compressedFrame;
+
+	private PreparedPacket(byte[] frame, String content) {
+		this.frame = frame;
+		this.content = content;
+	}
+
+	/**
+	 * Builds a packet
+	 *
+	 * @param packet Packet to build
+	 * @return PreparedPacket instance
+	 * @throws IOException If building the packet fails
+	 */
+	public static PreparedPacket of(ISmartfoxPacket packet) throws IOException {
+		PreparedPacket prepared;
+		XtWriter writer = SmartfoxClient.buildPooled(packet);
+		if (writer == null)
+			prepared = of(packet.build());
+		else {
+			try {
+				prepared = of(writer);
+			} finally {
+				writer.release();
+			}
+		}
+		prepared.policy = OutboundPolicy.of(packet);
+		return prepared;
+	}
+
+	/**
+	 * Prepares a packet from a writer
+	 *
+	 * @param packet Packet writer
+	 * @return PreparedPacket instance
+	 */
+	public static PreparedPacket of(XtWriter packet) {
+		return new PreparedPacket(packet.encodeFrame(), null);
+	}
+
+	/**
+	 * Prepares a raw packet
+	 *
+	 * @param packet Raw packet
+	 * @return PreparedPacket instance
+	 */
+	public static PreparedPacket of(String packet) {
+		byte[] payload = packet.getBytes(StandardCharsets.UTF_8);
+		byte[] frame = new byte[payload.length + 1];
+		System.arraycopy(payload, 0, frame, 0, payload.length);
+		return new PreparedPacket(frame, packet);
+	}
+
+	/**
+	 * Prepares a packet from already encoded frames
+	 *
+	 * @param frames UTF-8 packet bytes, each packet followed by a null terminator,
+	 *               must not be modified after this call
+	 * @return PreparedPacket instance
+	 */
+	public static PreparedPacket wrap(byte[] frames) {
+		if (frames.length == 0 || frames[frames.length - 1] != 0)
+			throw new IllegalArgumentException("Frames are not null-terminated");
+		return new PreparedPacket(frames, null);
+	}
+
+	/**
+	 * Combines packets into a single packet that is written at once, the client
+	 * still receives them as separate packets
+	 *
+	 * @param packets Packets to combine
+	 * @return PreparedPacket instance
+	 */
+	public static PreparedPacket concat(List<PreparedPacket> packets) {
+		int length = 0;
+		for (PreparedPacket packet : packets)
+			length += packet.frame.length;
+		byte[] frame = new byte[length];
+		int offset = 0;
+		OutboundPolicy policy = OutboundPolicy.DROPPABLE;
+		for (PreparedPacket packet : packets) {
+			System.arraycopy(packet.frame, 0, frame, offset, packet.frame.length);
+			offset += packet.frame.length;
+			if (packet.policy != OutboundPolicy.DROPPABLE)
+				policy = OutboundPolicy.RELIABLE;
+		}
+		PreparedPacket combined = new PreparedPacket(frame, null);
+		combined.policy = policy;
+		return combined;
+	}
+
+	/**
+	 * Retrieves the outbound policy of the packet, combined packets are only
+	 * droppable if all their packets are
+	 *
+	 * @return OutboundPolicy value
+	 */
+	public OutboundPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Retrieves the encoded packet length
+	 *
+	 * @return Packet length in bytes, including the null terminator
+	 */
+	public int length() {
+		return frame.length;
+	}
+
+	/**
+	 * Writes the packet (including the null terminator) to a stream
+	 *
+	 * @param output Output stream
+	 * @throws IOException If writing fails
+	 */
+	public void writeTo(OutputStream output) throws IOException {
+		output.write(frame);
+	}
+
+	/**
+	 * Retrieves the frame to send to a client, large packets are compressed once
+	 * for all clients that support compression. The returned array must not be
+	 * modified.
+	 */
+	byte[] frameFor(SmartfoxClient client) {
+		if (!client.shouldCompress(frame.length))
+			return frame;
+		byte[] compressed = compressedFrame;
+		if (compressed == null) {
+			compressed = compressFrames(client);
+			compressedFrame = compressed;
+		}
+		return compressed;
+	}
+
+	private byte[] compressFrames(SmartfoxClient client) {
+		// Combined packets are compressed one packet at a time, a compressed frame
+		// must hold a single packet
+		ByteArrayOutputStream output = new ByteArrayOutputStream(frame.length);
+		boolean compressedAny = false;
+		int start = 0;
+		for (int i = 0; i < frame.length; i++) {
+			if (frame[i] != 0)
+				continue;
+			int length = i + 1 - start;
+			byte[] compressed = null;
+			if (client.shouldCompress(length)) {
+				compressed = FrameCompressor.compress(
+						length == frame.length ? frame : Arrays.copyOfRange(frame, start, i + 1), length);
+			}
+			if (compressed != null) {
+				output.write(compressed, 0, compressed.length);
+				compressedAny = true;
+			} else
+				output.write(frame, start, length);
+			start = i + 1;
+		}
+		return compressedAny ? output.toByteArray() : frame;
+	}
+
+	/**
+	 * Creates a read-only buffer over the frame to send to a client, each call
+	 * returns a buffer with its own position
+	 */
+	ByteBuffer buffer(SmartfoxClient client) {
+		return ByteBuffer.wrap(frameFor(client)).asReadOnlyBuffer();
+	}
+
+	@Override
+	public String toString() {
+		if (content == null)
+			content = new String(frame, 0, frame.length - 1, StandardCharsets.UTF_8);
+		return content;
+	}
+
+}
@@ -3,11 +3,35 @@ package org.asf.centuria.networking.smartfox;
 import java.io.IOException;
 import java.util.ArrayList;
 
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
+import org.asf.centuria.data.XtWriter;
 import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+import org.asf.centuria.packets.xt.IXtPacket;
+import org.asf.centuria.util.OutboundQueue;
 
 public abstract class SmartfoxClient {
 
 	private ArrayList<Object> objects = new ArrayList<Object>();
+	private volatile Boolean compressionSupported;
+	private OutboundQueue outboundQueue = new OutboundQueue(() -> {
+		Centuria.logger.warn(MarkerManager.getMarker("SMARTFOX"),
+				"Disconnecting " + getAddress() + ": client is not reading packets fast enough");
+		evict();
+	});
+
+	// XT packet types that use the default build implementation
+	private static final ClassValue<Boolean> defaultXtBuild = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return IXtPacket.class.isAssignableFrom(type)
+						&& type.getMethod("build").getDeclaringClass() == IXtPacket.class;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+	};
 
 	/**
 	 * Retrieves objects from the connection container, used to store information in
@@ -81,6 +105,135 @@ public abstract class SmartfoxClient {
 	 */
 	public abstract void sendPacket(String packet);
 
+	/**
+	 * Sends a XT packet to the client, the writer can be reused after this call
+	 * 
+	 * @since Beta 1.5.4
+	 * @param packet Packet writer to send
+	 */
+	public void sendPacket(XtWriter packet) {
+		sendPacket(packet.encode());
+	}
+
+	/**
+	 * Sends a prepared packet to the client, prepared packets can be sent to many
+	 * clients without being built again
+	 * 
+	 * @since Beta 1.5.4
+	 * @param packet Prepared packet to send
+	 */
+	public void sendPacket(PreparedPacket packet) {
+		sendPacket(packet.toString());
+	}
+
+	/**
+	 * Retrieves the outbound queue of the client, holds the queue depth and
+	 * dropped packet count
+	 * 
+	 * @since Beta 1.5.4
+	 * @return OutboundQueue instance
+	 */
+	public OutboundQueue getOutboundQueue() {
+		return outboundQueue;
+	}
+
+	/**
+	 * Called when the client is evicted because its outbound queue stayed over
+	 * the high-water mark, needs to close the connection without blocking
+	 * 
+	 * @since Beta 1.5.4
+	 */
+	protected void evict() {
+		closeClient();
+	}
+
+	/**
+	 * Checks if the client accepts compressed packets, by default this is the
+	 * case once the client sent a compressed packet itself
+	 * 
+	 * @since Beta 1.5.4
+	 * @return True if compressed packets can be sent to the client, false
+	 *         otherwise
+	 */
+	public boolean isCompressionSupported() {
+		Boolean supported = compressionSupported;
+		if (supported != null)
+			return supported;
+		return getServer().compressesAllClients();
+	}
+
+	/**
+	 * Overrides whether the client accepts compressed packets, use false to opt
+	 * legacy clients out of compression
+	 * 
+	 * @since Beta 1.5.4
+	 * @param supported True if compressed packets can be sent to the client,
+	 *                  false otherwise
+	 */
+	public void setCompressionSupported(boolean supported) {
+		compressionSupported = supported;
+	}
+
+	/**
+	 * Called when a compressed packet was received from the client
+	 * 
+	 * @since Beta 1.5.4
+	 */
+	protected void compressedPacketReceived() {
+		if (compressionSupported == null)
+			compressionSupported = true;
+	}
+
+	/**
+	 * Checks if a packet should be compressed before sending it to this client
+	 * 
+	 * @since Beta 1.5.4
+	 * @param length Packet length in bytes
+	 * @return True if the packet should be compressed, false otherwise
+	 */
+	protected boolean shouldCompress(int length) {
+		int threshold = getServer().getCompressionThreshold();
+		return threshold > 0 && length >= threshold && isCompressionSupported();
+	}
+
+	/**
+	 * Compresses a packet frame if it should be compressed for this client
+	 * 
+	 * @since Beta 1.5.4
+	 * @param frame Packet bytes including the null terminator
+	 * @return Frame to send
+	 */
+	protected byte[] compressIfNeeded(byte[] frame) {
+		if (!shouldCompress(frame.length))
+			return frame;
+		byte[] compressed = FrameCompressor.compress(frame, frame.length);
+		return compressed != null ? compressed : frame;
+	}
+
+	/**
+	 * Builds a XT packet into a pooled writer
+	 * 
+	 * @since Beta 1.5.4
+	 * @param packet Packet to build
+	 * @return XtWriter instance (release after use) or null if the packet needs
+	 *         to be built through build()
+	 * @throws IOException If building fails
+	 */
+	protected static XtWriter buildPooled(ISmartfoxPacket packet) throws IOException {
+		if (!defaultXtBuild.get(packet.getClass()))
+			return null;
+		IXtPacket<?> xt = (IXtPacket<?>) packet;
+		XtWriter writer = XtWriter.obtain();
+		try {
+			writer.writeString(xt.id());
+			xt.build(writer);
+		} catch (IOException | RuntimeException e) {
+			writer.release();
+			throw e;
+		}
+		return writer;
+	}
+
 	/**
 	 * Reads a single packet
 	 * 
@@ -0,0 +1,136 @@
+package org.asf.centuria.networking.smartfox;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
+
+/**
+ * 
+ * Selector-based event loop, used by the non-blocking smartfox transport to
+ * read and write many client channels from a single thread
+ * 
+ * @since Beta 1.5.4
+ *
+ */
+public class SmartfoxEventLoop {
+
+	private Selector selector;
+	private Thread thread;
+	private ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private volatile boolean running;
+
+	SmartfoxEventLoop(String name) throws IOException {
+		selector = Selector.open();
+		thread = new Thread(this::run, name);
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts the event loop thread
+	 */
+	void start() {
+		running = true;
+		thread.start();
+	}
+
+	/**
+	 * Stops the event loop, closes all registered channels
+	 */
+	void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Checks if the calling thread is the event loop thread
+	 *
+	 * @return True if called from the event loop, false otherwise
+	 */
+	public boolean inEventLoop() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Runs a task on the event loop thread
+	 *
+	 * @param task Task to run
+	 */
+	void execute(Runnable task) {
+		tasks.add(task);
+		if (!inEventLoop())
+			selector.wakeup();
+	}
+
+	/**
+	 * Registers a client channel with this event loop
+	 *
+	 * @param client Client to register
+	 */
+	void register(ChannelSmartfoxClient client) {
+		execute(() -> {
+			try {
+				client.registered(client.getChannel().register(selector, SelectionKey.OP_READ, client));
+			} catch (IOException | NullPointerException e) {
+				client.channelClosed();
+			}
+		});
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				Centuria.logger.error(MarkerManager.getMarker("SMARTFOX"), "Event loop selector failure", e);
+				break;
+			}
+
+			// Run scheduled tasks
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				try {
+					task.run();
+				} catch (Exception e) {
+					Centuria.logger.error(MarkerManager.getMarker("SMARTFOX"),
+							"Exception in event loop " + thread.getName(), e);
+				}
+			}
+
+			// Handle ready channels
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				ChannelSmartfoxClient client = (ChannelSmartfoxClient) key.attachment();
+				try {
+					if (key.isReadable())
+						client.readFrames();
+					if (key.isValid() && key.isWritable())
+						client.writePending();
+				} catch (IOException | CancelledKeyException e) {
+					client.channelClosed();
+				} catch (Exception e) {
+					Centuria.logger.error(MarkerManager.getMarker("SMARTFOX"), "Connection died!", e);
+					client.channelClosed();
+				}
+			}
+		}
+
+		// Close remaining channels
+		for (SelectionKey key : selector.keys()) {
+			((ChannelSmartfoxClient) key.attachment()).channelClosed();
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+		}
+	}
+
+}
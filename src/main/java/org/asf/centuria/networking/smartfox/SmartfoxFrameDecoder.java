@@ -0,0 +1,179 @@
+package org.asf.centuria.networking.smartfox;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+
+/**
+ *
+ * Reusable smartfox frame decoder, reads connection data in bulk into a single
+ * buffer and splits it into null-terminated packets
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class SmartfoxFrameDecoder {
+
+	private static final int MIN_READ = 4096;
+	private static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+	// Received data, unprocessed data is located between start and end
+	private byte[] buffer;
+	private int start;
+	private int end;
+
+	// Offset up to which the buffer has been searched for a terminator
+	private int scanned;
+
+	// Channel view of the buffer
+	private ByteBuffer view;
+
+	private boolean receivedCompressedFrame;
+
+	public SmartfoxFrameDecoder() {
+		this(8192);
+	}
+
+	public SmartfoxFrameDecoder(int initialSize) {
+		buffer = new byte[initialSize];
+	}
+
+	/**
+	 * Reads a single packet from a stream, blocks until a packet is available
+	 *
+	 * @param input Stream to read from
+	 * @return Packet string
+	 * @throws IOException If reading fails
+	 */
+	public String readFrame(InputStream input) throws IOException {
+		while (true) {
+			String frame = nextFrame();
+			if (frame != null)
+				return frame;
+
+			// Read more data
+			ensureCapacity();
+			int read = input.read(buffer, end, buffer.length - end);
+			if (read == -1)
+				throw new IOException("Stream closed");
+			end += read;
+		}
+	}
+
+	/**
+	 * Reads available data from a channel into the decoder, use nextFrame() to
+	 * retrieve the received packets
+	 *
+	 * @param channel Channel to read from
+	 * @return Amount of bytes read or -1 if the channel reached its end
+	 * @throws IOException If reading fails
+	 */
+	public int readFrom(ReadableByteChannel channel) throws IOException {
+		ensureCapacity();
+		if (view == null || view.array() != buffer)
+			view = ByteBuffer.wrap(buffer);
+		view.limit(buffer.length);
+		view.position(end);
+		int read = channel.read(view);
+		if (read > 0)
+			end += read;
+		return read;
+	}
+
+	/**
+	 * Retrieves the next complete packet from the received data
+	 *
+	 * @return Packet string or null if no complete packet has been received
+	 * @throws IOException If decoding the packet fails
+	 */
+	public String nextFrame() throws IOException {
+		for (int i = scanned; i < end; i++) {
+			if (buffer[i] == 0) {
+				int offset = start;
+				start = i + 1;
+				scanned = start;
+				if (start == end) {
+					// Buffer fully consumed
+					start = 0;
+					end = 0;
+					scanned = 0;
+				}
+				if (offset < i && buffer[offset] == '$')
+					receivedCompressedFrame = true;
+				return decode(buffer, offset, i - offset);
+			}
+		}
+		scanned = end;
+		return null;
+	}
+
+	/**
+	 * Checks if the remote end sent a compressed packet, meaning it supports
+	 * compressed packets
+	 *
+	 * @return True if a compressed packet was received, false otherwise
+	 */
+	public boolean hasReceivedCompressedFrame() {
+		return receivedCompressedFrame;
+	}
+
+	private void ensureCapacity() throws IOException {
+		if (buffer.length - end >= MIN_READ)
+			return;
+
+		// Move the incomplete packet to the start of the buffer
+		if (start != 0) {
+			System.arraycopy(buffer, start, buffer, 0, end - start);
+			end -= start;
+			scanned -= start;
+			start = 0;
+		}
+
+		// Grow if needed
+		if (buffer.length - end < MIN_READ) {
+			if (buffer.length >= MAX_FRAME_SIZE)
+				throw new IOException("Packet too large");
+			buffer = Arrays.copyOf(buffer, Math.min(MAX_FRAME_SIZE, buffer.length * 2));
+		}
+	}
+
+	/**
+	 * Decodes a raw (null-terminator stripped) packet, the data may be modified
+	 *
+	 * @param data   Buffer containing the packet
+	 * @param offset Packet offset
+	 * @param length Packet length
+	 * @return Packet string
+	 * @throws IOException If decompressing the packet fails
+	 */
+	public static String decode(byte[] data, int offset, int length) throws IOException {
+		// Solve for the XT issue, rewrites the %xt|n% prefix to %xt% in place
+		if (length >= 6 && data[offset] == '%' && data[offset + 1] == 'x' && data[offset + 2] == 't'
+				&& data[offset + 3] == '|' && data[offset + 4] == 'n' && data[offset + 5] == '%') {
+			data[offset + 2] = '%';
+			data[offset + 3] = 'x';
+			data[offset + 4] = 't';
+			offset += 2;
+			length -= 2;
+		}
+
+		// Compression
+		if (length >= 1 && data[offset] == '$') {
+			// Decompress packet
+			InputStream dc = new GZIPInputStream(
+					Base64.getDecoder().wrap(new ByteArrayInputStream(data, offset + 1, length - 1)));
+			byte[] newData = dc.readAllBytes();
+			dc.close();
+			return new String(newData, StandardCharsets.UTF_8);
+		}
+
+		return new String(data, offset, length, StandardCharsets.UTF_8);
+	}
+
+}
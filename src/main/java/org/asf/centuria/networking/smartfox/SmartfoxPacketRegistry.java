@@ -0,0 +1,202 @@
+package org.asf.centuria.networking.smartfox;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.asf.centuria.data.XtReader;
+import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+import org.asf.centuria.packets.xt.IXtPacket;
+
+/**
+ *
+ * Smartfox packet registry, indexes XT packets by ID so inbound packets are
+ * only offered to the packets that can handle them
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class SmartfoxPacketRegistry {
+
+	private ArrayList<RegisteredPacket> packets = new ArrayList<RegisteredPacket>();
+
+	// Lookup tables, rebuilt after the registry changes
+	private volatile PacketIndex index;
+
+	private static class RegisteredPacket {
+		public ISmartfoxPacket packet;
+		public String xtID;
+
+		public RegisteredPacket(ISmartfoxPacket packet) {
+			this.packet = packet;
+			if (isIndexed(packet))
+				xtID = ((IXtPacket<?>) packet).id();
+		}
+	}
+
+	private static class PacketIndex {
+		public HashMap<String, RegisteredPacket[]> xtPackets = new HashMap<String, RegisteredPacket[]>();
+		public RegisteredPacket[] otherPackets;
+	}
+
+	/**
+	 * Registers a packet type
+	 *
+	 * @param packet ISmartfoxPacket instance
+	 */
+	public synchronized void register(ISmartfoxPacket packet) {
+		packets.add(new RegisteredPacket(packet));
+		index = null;
+	}
+
+	/**
+	 * Removes all registered packets
+	 */
+	public synchronized void clear() {
+		packets.clear();
+		index = null;
+	}
+
+	/**
+	 * Retrieves all registered packets
+	 *
+	 * @return Array of ISmartfoxPacket instances
+	 */
+	public synchronized ISmartfoxPacket[] getPackets() {
+		return packets.stream().map(t -> t.packet).toArray(t -> new ISmartfoxPacket[t]);
+	}
+
+	/**
+	 * Finds, parses and handles a packet
+	 *
+	 * @param packet Raw packet
+	 * @param client Client that sent the packet
+	 * @return True if the packet was handled, false otherwise
+	 * @throws IOException If handling fails
+	 */
+	public boolean handle(String packet, SmartfoxClient client) throws IOException {
+		// Tokenize once
+		PacketIndex index = getIndex();
+		XtReader reader = null;
+		RegisteredPacket[] candidates = index.otherPackets;
+		if (packet.startsWith("%xt%")) {
+			reader = new XtReader(packet);
+			candidates = index.xtPackets.getOrDefault(reader.read(), index.otherPackets);
+			reader.mark();
+		}
+
+		// Find a packet, if a packet does not handle the payload, the next compatible
+		// one is tried
+		for (RegisteredPacket pkt : candidates) {
+			ISmartfoxPacket res = parse(pkt, packet, reader);
+			if (res != null && res.handle(client))
+				return true; // It was handled, lets return true and end the loop
+		}
+
+		return false;
+	}
+
+	/**
+	 * Parses a packet
+	 *
+	 * @param <T>        Packet type
+	 * @param packet     Raw packet
+	 * @param packetType Packet type
+	 * @return Packet instance or null
+	 * @throws IOException If parsing fails
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends ISmartfoxPacket> T parse(String packet, Class<T> packetType) throws IOException {
+		// Tokenize once
+		PacketIndex index = getIndex();
+		XtReader reader = null;
+		RegisteredPacket[] candidates = index.otherPackets;
+		if (packet.startsWith("%xt%")) {
+			reader = new XtReader(packet);
+			candidates = index.xtPackets.getOrDefault(reader.read(), index.otherPackets);
+			reader.mark();
+		}
+
+		// Find a packet
+		for (RegisteredPacket pkt : candidates) {
+			if (!packetType.isAssignableFrom(pkt.packet.getClass()))
+				continue;
+			ISmartfoxPacket res = parse(pkt, packet, reader);
+			if (res != null)
+				return (T) res;
+		}
+
+		// Could not find a packet that matched
+		return null;
+	}
+
+	private ISmartfoxPacket parse(RegisteredPacket pkt, String packet, XtReader reader) throws IOException {
+		if (reader != null && pkt.xtID != null) {
+			// Already matched by ID, parse from the shared reader
+			reader.reset();
+			IXtPacket<?> res = ((IXtPacket<?>) pkt.packet).instantiate();
+			res.parse(reader);
+			return res;
+		}
+
+		// Packet with custom matching
+		if (!pkt.packet.canParse(packet))
+			return null;
+		ISmartfoxPacket res = pkt.packet.instantiate();
+		if (!res.parse(packet))
+			return null; // Apparently this packet doesnt support the payload, odd
+		return res;
+	}
+
+	private PacketIndex getIndex() {
+		PacketIndex index = this.index;
+		if (index == null)
+			index = buildIndex();
+		return index;
+	}
+
+	private synchronized PacketIndex buildIndex() {
+		if (index != null)
+			return index;
+		PacketIndex index = new PacketIndex();
+
+		// Packets that cannot be indexed are offered every packet
+		ArrayList<RegisteredPacket> other = new ArrayList<RegisteredPacket>();
+		for (RegisteredPacket pkt : packets) {
+			if (pkt.xtID == null)
+				other.add(pkt);
+			else
+				index.xtPackets.put(pkt.xtID, null);
+		}
+		index.otherPackets = other.toArray(t -> new RegisteredPacket[t]);
+
+		// Build the candidate list for each ID, keeps registration order
+		for (String id : index.xtPackets.keySet()) {
+			ArrayList<RegisteredPacket> candidates = new ArrayList<RegisteredPacket>();
+			for (RegisteredPacket pkt : packets) {
+				if (pkt.xtID == null || pkt.xtID.equals(id))
+					candidates.add(pkt);
+			}
+			index.xtPackets.put(id, candidates.toArray(t -> new RegisteredPacket[t]));
+		}
+
+		this.index = index;
+		return index;
+	}
+
+	/**
+	 * Checks if a packet can be matched by ID, this is the case for XT packets
+	 * that use the default canParse and parse implementations
+	 */
+	private static boolean isIndexed(ISmartfoxPacket packet) {
+		if (!(packet instanceof IXtPacket))
+			return false;
+		try {
+			return packet.getClass().getMethod("canParse", String.class).getDeclaringClass() == IXtPacket.class
+					&& packet.getClass().getMethod("parse", String.class).getDeclaringClass() == IXtPacket.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+}
@@ -1,17 +1,18 @@
 package org.asf.centuria.networking.smartfox;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.Base64;
-import java.util.zip.GZIPInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+import org.asf.centuria.data.XtWriter;
 import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+import org.asf.centuria.util.OutboundQueue;
 import org.asf.centuria.util.TaskThread;
 
 public class SocketSmartfoxClient extends SmartfoxClient {
@@ -20,6 +21,7 @@ public class SocketSmartfoxClient extends SmartfoxClient {
 	private BaseSmartfoxServer server;
 	InputStream input;
 	OutputStream output;
+	private SmartfoxFrameDecoder decoder = new SmartfoxFrameDecoder();
 
 	TaskThread taskThread;
 
@@ -27,14 +29,20 @@ public class SocketSmartfoxClient extends SmartfoxClient {
 		this.client = client;
 		this.server = server;
 
-		taskThread = new TaskThread(client.toString());
-		taskThread.start();
+		taskThread = new TaskThread(client.toString(), () -> {
+			// Flush once for all packets sent in this batch
+			try {
+				output.flush();
+			} catch (Exception e) {
+			}
+		});
 
 		try {
 			input = client.getInputStream();
-			output = client.getOutputStream();
+			output = new BufferedOutputStream(client.getOutputStream());
 		} catch (IOException e) {
 		}
+		taskThread.start();
 	}
 
 	/**
@@ -47,6 +55,7 @@ public class SocketSmartfoxClient extends SmartfoxClient {
 	@Override
 	protected void stop() {
 		taskThread.stopCleanly();
+		getOutboundQueue().clear();
 		client = null;
 	}
 
@@ -69,37 +78,72 @@ public class SocketSmartfoxClient extends SmartfoxClient {
 
 	@Override
 	public void sendPacket(ISmartfoxPacket packet) {
-		taskThread.schedule(() -> {
+		try {
+			// Build XT packets through a pooled writer
+			XtWriter writer = buildPooled(packet);
+			if (writer == null) {
+				queueFrame(encodeFrame(packet.build()), OutboundPolicy.of(packet));
+				return;
+			}
 			try {
-				// Instantiate the packet and build
-				String content = packet.build();
-
-				// Send packet
-				byte[] payload = content.getBytes("UTF-8");
-				output.write(payload);
-				output.write(0);
-				output.flush();
-			} catch (Exception e) {
+				queueFrame(compressIfNeeded(writer.encodeFrame()), OutboundPolicy.of(packet));
+			} finally {
+				writer.release();
 			}
-		});
+		} catch (Exception e) {
+		}
 	}
 
 	@Override
 	public void sendPacket(String packet) {
+		queueFrame(encodeFrame(packet), OutboundPolicy.RELIABLE);
+	}
+
+	@Override
+	public void sendPacket(XtWriter packet) {
+		// Encode now, the writer may be reused once this returns
+		queueFrame(compressIfNeeded(packet.encodeFrame()), OutboundPolicy.RELIABLE);
+	}
+
+	@Override
+	public void sendPacket(PreparedPacket packet) {
+		queueFrame(packet.frameFor(this), packet.getPolicy());
+	}
+
+	private byte[] encodeFrame(String packet) {
+		byte[] payload = packet.getBytes(StandardCharsets.UTF_8);
+		return compressIfNeeded(Arrays.copyOf(payload, payload.length + 1));
+	}
+
+	private void queueFrame(byte[] frame, OutboundPolicy policy) {
+		// Packets are encoded before queueing so the queue size is known
+		OutboundQueue queue = getOutboundQueue();
+		if (client == null || !queue.offer(frame.length, policy == OutboundPolicy.DROPPABLE))
+			return;
 		taskThread.schedule(() -> {
 			try {
 				// Send packet
-				byte[] payload = packet.getBytes("UTF-8");
 				if (client == null)
 					return;
-				output.write(payload);
-				output.write(0);
-				output.flush();
+				output.write(frame);
 			} catch (Exception e) {
+			} finally {
+				queue.sent(frame.length);
 			}
 		});
 	}
 
+	@Override
+	protected void evict() {
+		// Close the socket, the client thread handles the disconnect
+		try {
+			Socket client = this.client;
+			if (client != null)
+				client.close();
+		} catch (IOException e) {
+		}
+	}
+
 	@Override
 	public <T extends ISmartfoxPacket> T readPacket(Class<T> packetType) throws IOException {
 		return (T) server.<T>readPacket(this, packetType);
@@ -112,32 +156,10 @@ public class SocketSmartfoxClient extends SmartfoxClient {
 
 	@Override
 	public String readRawPacket() throws IOException {
-		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-		while (true) {
-			int b = input.read();
-			if (b == -1) {
-				throw new IOException("Stream closed");
-			} else if (b == 0) {
-				String payload = new String(buffer.toByteArray(), "UTF-8");
-
-				// Solve for the XT issue
-				if (payload.startsWith("%xt|n%"))
-					payload = "%xt%" + payload.substring("%xt|n%".length());
-
-				// Compression
-				if (payload.startsWith("$")) {
-					// Decompress packet
-					byte[] compressedData = Base64.getDecoder().decode(payload.substring(1));
-					GZIPInputStream dc = new GZIPInputStream(new ByteArrayInputStream(compressedData));
-					byte[] newData = dc.readAllBytes();
-					dc.close();
-					payload = new String(newData, "UTF-8");
-				}
-
-				return payload;
-			} else
-				buffer.write(b);
-		}
+		String packet = decoder.readFrame(input);
+		if (decoder.hasReceivedCompressedFrame())
+			compressedPacketReceived();
+		return packet;
 	}
 
 	@Override
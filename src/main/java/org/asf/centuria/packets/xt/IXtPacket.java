@@ -40,10 +40,14 @@ public interface IXtPacket<T extends IXtPacket<T>> extends ISmartfoxPacket {
 	}
 
 	public default String build() throws IOException {
-		XtWriter writer = new XtWriter();
-		writer.writeString(id());
-		build(writer);
-		return writer.encode();
+		XtWriter writer = XtWriter.obtain();
+		try {
+			writer.writeString(id());
+			build(writer);
+			return writer.encode();
+		} finally {
+			writer.release();
+		}
 	}
 
 	/**
@@ -105,11 +105,7 @@ public class AvatarActionPacket implements IXtPacket<AvatarActionPacket> {
 
 		// Broadcast sync
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				player.client.sendPacket(pkt);
-			}
-		}
+		srv.broadcastToRoom(plr.room, pkt, player -> player != plr);
 
 		return true;
 	}
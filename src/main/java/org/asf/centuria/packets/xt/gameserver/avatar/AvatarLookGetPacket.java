@@ -75,7 +75,7 @@ public class AvatarLookGetPacket implements IXtPacket<AvatarLookGetPacket> {
 				op.close();
 				writer.writeString(Base64.getEncoder().encodeToString(op.toByteArray()));
 				writer.writeString(DATA_SUFFIX); // data suffix
-				client.sendPacket(writer.encode());
+				client.sendPacket(writer);
 			} catch (IOException e) {
 			}
 		}
@@ -103,6 +103,7 @@ public class AvatarLookSavePacket implements IXtPacket<AvatarLookSavePacket> {
 				update.add(lookObj);
 			}
 			plr.account.getSaveSpecificInventory().setItem("avatars", items);
+			plr.invalidateAvatarAppearance();
 
 			// Prevent double save
 			plr.pendingLookID = null;
@@ -115,8 +116,8 @@ public class AvatarLookSavePacket implements IXtPacket<AvatarLookSavePacket> {
 
 			// Sync
 			GameServer srv = (GameServer) client.getServer();
-			for (Player player : srv.getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+			for (Player player : srv.getPlayersNear(plr)) {
+				if (player != plr) {
 					plr.syncTo(player);
 				}
 			}
@@ -12,6 +12,28 @@ public class AvatarObjectInfoPacket extends ObjectInfoPacket {
     public String displayName;
     public int unknownValue; //TODO: what is this??
 
+    /**
+     * Pre-serialized look, name and unknown value, written instead of the look,
+     * displayName and unknownValue fields when set
+     * 
+     * @since Beta 1.5.4
+     */
+    public String appearance;
+
+    /**
+     * Serializes the look, name and unknown value of an avatar so the same
+     * appearance can be written into many packets
+     * 
+     * @since Beta 1.5.4
+     * @param look         Avatar look
+     * @param displayName  Display name
+     * @param unknownValue Unknown value
+     * @return Appearance string
+     */
+    public static String buildAppearance(JsonObject look, String displayName, int unknownValue) {
+        return look.toString() + "%" + displayName + "%" + unknownValue + "%" + DATA_SUFFIX;
+    }
+
     @Override
 	public void build(XtWriter writer) throws IOException {
 		//I can't call super because super will finalize everything
@@ -47,6 +69,10 @@ public class AvatarObjectInfoPacket extends ObjectInfoPacket {
 		writer.writeInt(lastMove.actorActionType);
 		
         // Look and name
+        if (appearance != null) {
+            writer.add(appearance); // includes the data suffix
+            return;
+        }
         writer.writeString(look.toString());
         writer.writeString(displayName);
         writer.writeInt(unknownValue);
@@ -63,6 +63,7 @@ public class AvatarSelectLookPacket implements IXtPacket<AvatarSelectLookPacket>
 
 		// Save active look
 		plr.account.setActiveLook(plr.activeLook);
+		plr.invalidateAvatarAppearance();
 
 		// Assign the defID
 		JsonArray items = plr.account.getSaveSpecificInventory().getItem("avatars").getAsJsonArray();
@@ -84,8 +85,8 @@ public class AvatarSelectLookPacket implements IXtPacket<AvatarSelectLookPacket>
 
 		// Sync
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+		for (Player player : srv.getPlayersNear(plr)) {
+			if (player != plr) {
 				plr.syncTo(player);
 			}
 		}
@@ -92,7 +92,7 @@ public class ObjectActionFinishPacket implements IXtPacket<ObjectActionFinishPac
 		pk.writeInt(obj.primaryObjectInfo.type); // Type
 		pk.writeString(destroy ? "2" : "0");
 		pk.writeString(DATA_SUFFIX); // Data suffix
-		client.sendPacket(pk.encode());
+		client.sendPacket(pk);
 
 		return true;
 	}
@@ -66,9 +66,9 @@ public class ObjectRespawnRequestPacket implements IXtPacket<ObjectRespawnReques
 
 		// Broadcast respawn
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				player.client.sendPacket(pk.encode());
+		for (Player player : srv.getPlayersInRoom(plr.room)) {
+			if (player != plr) {
+				player.client.sendPacket(pk);
 			}
 		}
 
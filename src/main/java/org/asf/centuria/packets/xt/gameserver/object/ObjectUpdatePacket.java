@@ -9,10 +9,14 @@ import org.asf.centuria.entities.generic.Quaternion;
 import org.asf.centuria.entities.generic.Vector3;
 import org.asf.centuria.entities.players.Player;
 import org.asf.centuria.networking.gameserver.GameServer;
+import org.asf.centuria.networking.gameserver.InterestManager;
+import org.asf.centuria.networking.gameserver.MovementTicker;
+import org.asf.centuria.networking.smartfox.IOutboundPolicyProvider;
+import org.asf.centuria.networking.smartfox.OutboundPolicy;
 import org.asf.centuria.networking.smartfox.SmartfoxClient;
 import org.asf.centuria.packets.xt.IXtPacket;
 
-public class ObjectUpdatePacket implements IXtPacket<ObjectUpdatePacket> {
+public class ObjectUpdatePacket implements IXtPacket<ObjectUpdatePacket>, IOutboundPolicyProvider {
 
 	private static final String PACKET_ID = "ou";
 
@@ -43,6 +47,16 @@ public class ObjectUpdatePacket implements IXtPacket<ObjectUpdatePacket> {
 		return PACKET_ID;
 	}
 
+	@Override
+	public OutboundPolicy getOutboundPolicy() {
+		// Movement is superseded by the next update and can be dropped for lagging
+		// clients, spawns, actions, teleports and the position a player stopped at
+		// are not
+		if (mode == 2 && speed != 0)
+			return OutboundPolicy.DROPPABLE;
+		return OutboundPolicy.RELIABLE;
+	}
+
 	@Override
 	public void parse(XtReader reader) throws IOException {
 		mode = reader.readInt();
@@ -158,27 +172,21 @@ public class ObjectUpdatePacket implements IXtPacket<ObjectUpdatePacket> {
 
 		// UUID-based teleport
 		if (mode == 5) {
-			boolean success = false;
-
 			// First attempt to find a player with the ID
-			for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-				if (player.account.getAccountID().equals(targetUUID)) {
-					// Load coordinates
-					success = true;
-					position.x = player.lastPos.x;
-					position.y = player.lastPos.y;
-					position.z = player.lastPos.z;
-					rotation.w = player.lastRot.w;
-					rotation.x = player.lastRot.x;
-					rotation.y = player.lastRot.y;
-					rotation.z = player.lastRot.z;
-					break;
-				}
-			}
+			Player player = ((GameServer) client.getServer()).getPlayer(targetUUID);
 
 			// Cancel if not found
-			if (!success)
+			if (player == null)
 				return true;
+
+			// Load coordinates
+			position.x = player.lastPos.x;
+			position.y = player.lastPos.y;
+			position.z = player.lastPos.z;
+			rotation.w = player.lastRot.w;
+			rotation.x = player.lastRot.x;
+			rotation.y = player.lastRot.y;
+			rotation.z = player.lastRot.z;
 		}
 
 		// Save position
@@ -187,17 +195,54 @@ public class ObjectUpdatePacket implements IXtPacket<ObjectUpdatePacket> {
 		plr.lastRot = rotation;
 		plr.lastAction = action;
 
-		// Broadcast sync
+		// Update nearby players
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (player != plr && player.room != null && player.room.equals(plr.room)
-					&& (!plr.ghostMode || player.hasModPerms) && !player.disableSync
-					&& (!plr.syncBlockedPlayers.contains(player.account.getAccountID()) || player.hasModPerms)) {
-				player.client.sendPacket(this);
-			}
+		if (srv.getInterestManager() != null)
+			srv.getInterestManager().update(plr);
+
+		// Movement is sent on the next room tick if enabled, actions and teleports
+		// are sent right away
+		MovementTicker ticker = srv.getMovementTicker();
+		if (ticker == null) {
+			// Broadcast sync
+			srv.broadcastToRoom(plr.room, this, player -> shouldSync(plr, player));
+			return true;
+		}
+		if (mode == 2) {
+			ticker.queue(plr, this);
+			return true;
+		}
+
+		// Broadcast sync, the sync lock keeps the tick from sending an older position
+		// after it
+		plr.syncLock.lock();
+		try {
+			ticker.discard(plr);
+			srv.broadcastToRoom(plr.room, this, player -> shouldSync(plr, player));
+		} finally {
+			plr.syncLock.unlock();
 		}
 
 		return true;
 	}
 
+	/**
+	 * Checks if movement of a player should be sent to another player
+	 * 
+	 * @since Beta 1.5.4
+	 * @param source Player that moved
+	 * @param target Player that would receive the update
+	 * @return True if the update should be sent, false otherwise
+	 */
+	public static boolean shouldSync(Player source, Player target) {
+		if (target == source || (source.ghostMode && !target.hasModPerms) || target.disableSync)
+			return false;
+		if (source.syncBlockedPlayers.contains(target.account.getAccountID()) && !target.hasModPerms)
+			return false;
+
+		// Check range
+		InterestManager interest = ((GameServer) source.client.getServer()).getInterestManager();
+		return interest == null || interest.isVisible(target, source);
+	}
+
 }
@@ -22,6 +22,7 @@ import org.asf.centuria.entities.sanctuaries.UpdateSancObjectItem;
 import org.asf.centuria.enums.objects.WorldObjectMoverNodeType;
 import org.asf.centuria.enums.sanctuaries.SanctuaryObjectType;
 import org.asf.centuria.networking.gameserver.GameServer;
+import org.asf.centuria.networking.smartfox.PreparedPacket;
 import org.asf.centuria.networking.smartfox.SmartfoxClient;
 import org.asf.centuria.packets.xt.IXtPacket;
 import org.asf.centuria.packets.xt.gameserver.inventory.InventoryItemPacket;
@@ -171,7 +172,7 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 			ilPacket.build(writer);
 
 			// send IL
-			plr.client.sendPacket(writer.encode());
+			plr.client.sendPacket(writer);
 		}
 
 		if (roomChanges.size() > 0) {
@@ -183,7 +184,7 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 			ilPacket.build(writer);
 
 			// send IL
-			plr.client.sendPacket(writer.encode());
+			plr.client.sendPacket(writer);
 		}
 
 		// then do this packet
@@ -191,7 +192,7 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 		writer = new XtWriter();
 		this.build(writer);
 
-		plr.client.sendPacket(writer.encode());
+		plr.client.sendPacket(writer);
 
 		sendObjectUpdatePackets(client);
 
@@ -201,57 +202,43 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 	public void sendObjectUpdatePackets(SmartfoxClient client) {
 
 		try {
+			GameServer srv = (GameServer) client.getServer();
+			var owner = (Player) client.container;
+			String ownerID = owner.account.getAccountID();
+			String room = "sanctuary_" + ownerID;
+
 			for (var updateSet : additions.entrySet()) {
 
 				if (updateSet.getValue()) {
 					var update = updateSet.getKey();
-					var owner = (Player) client.container;
 					var furnItem = owner.account.getSaveSpecificInventory().getFurnitureAccessor()
 							.getFurnitureData(update.objectId);
 
 					// now do an OI packet
-					for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-						if (player.room != null && player.room.equals("sanctuary_" + owner.account.getAccountID())) {
-
-							// Send packet
-							SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
-
-							// Object creation parameters
-							packet.id = update.objectId; // World object ID
-							packet.defId = 1751; // Sanctuary Actor Def Id.
-							packet.ownerId = player.room.substring("sanctuary_".length()); // Owner ID
-
-							// Object info
-							packet.lastMove = new WorldObjectMoveNodeData();
-							packet.lastMove.positionInfo = new WorldObjectPositionInfo(
-									update.objectInfo.positionInfo.position.x,
-									update.objectInfo.positionInfo.position.y,
-									update.objectInfo.positionInfo.position.z,
-									update.objectInfo.positionInfo.rotation.x,
-									update.objectInfo.positionInfo.rotation.y,
-									update.objectInfo.positionInfo.rotation.z,
-									update.objectInfo.positionInfo.rotation.w);
-							packet.lastMove.velocity = new Velocity();
-							packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
-							packet.lastMove.actorActionType = 0;
-							packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
-
-							packet.objectType = SanctuaryObjectType.Furniture;
-							// Only send json if its not the owner
-							packet.writeFurnitureInfo = !player.account.getAccountID()
-									.equals(owner.account.getAccountID());
-							packet.funitureObject = furnItem;
-							packet.sancObjectInfo = update.objectInfo;
-
-							player.client.sendPacket(packet);
-
-							// Log
-							if (Centuria.debugMode) {
-								System.out.println(
-										"[SANCTUARY] [UPDATE] Server to client: load object (" + packet.build() + ")");
-							}
-						}
-					}
+					SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
+
+					// Object creation parameters
+					packet.id = update.objectId; // World object ID
+					packet.defId = 1751; // Sanctuary Actor Def Id.
+					packet.ownerId = ownerID; // Owner ID
+
+					// Object info
+					packet.lastMove = new WorldObjectMoveNodeData();
+					packet.lastMove.positionInfo = new WorldObjectPositionInfo(update.objectInfo.positionInfo.position.x,
+							update.objectInfo.positionInfo.position.y, update.objectInfo.positionInfo.position.z,
+							update.objectInfo.positionInfo.rotation.x, update.objectInfo.positionInfo.rotation.y,
+							update.objectInfo.positionInfo.rotation.z, update.objectInfo.positionInfo.rotation.w);
+					packet.lastMove.velocity = new Velocity();
+					packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
+					packet.lastMove.actorActionType = 0;
+					packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
+
+					packet.objectType = SanctuaryObjectType.Furniture;
+					packet.funitureObject = furnItem;
+					packet.sancObjectInfo = update.objectInfo;
+
+					// Send packet, only send json if its not the owner
+					sendToRoom(srv, room, ownerID, packet, "load object");
 				} else {
 					// item limit, don't spawn the item.
 				}
@@ -259,75 +246,74 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 			}
 
 			for (var removedItemId : removals) {
-				var owner = (Player) client.container;
-
 				// now do an OD packet
-				for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-					if (player.room != null && player.room.equals("sanctuary_" + owner.account.getAccountID())) {
-						// Send packet
-						XtWriter wr = new XtWriter();
-						wr.writeString("od");
-						wr.writeInt(-1); // data prefix
-
-						// Object creation parameters
-						wr.writeString(removedItemId); // World object ID
-						wr.writeString(""); // data suffix
-						String pk = wr.encode();
-						player.client.sendPacket(pk);
-
-						// Log
-						if (Centuria.debugMode) {
-							System.out.println("[SANCTUARY] [UPDATE] Server to client: Delete object (" + pk + ")");
-						}
-					}
+				XtWriter wr = new XtWriter();
+				wr.writeString("od");
+				wr.writeInt(-1); // data prefix
+
+				// Object creation parameters
+				wr.writeString(removedItemId); // World object ID
+				wr.writeString(""); // data suffix
+
+				// Send packet
+				PreparedPacket pk = PreparedPacket.of(wr);
+				int sent = 0;
+				for (Player player : srv.getPlayersInRoom(room)) {
+					player.client.sendPacket(pk);
+					sent++;
+				}
+
+				// Log
+				if (Centuria.debugMode && sent != 0) {
+					System.out.println("[SANCTUARY] [UPDATE] Server to client: Delete object (" + pk + ")");
 				}
 			}
 
 			if (!this.roomChanges.isEmpty()) {
-				var owner = (Player) client.container;
-
 				// now do an OI packet
-				for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-					if (player.room != null && player.room.equals("sanctuary_" + owner.account.getAccountID())) {
-						// Send packet
-						SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
-
-						// Object creation parameters
-						packet.id = houseInv.get(InventoryItem.UUID_PROPERTY_NAME).getAsString(); // World object ID
-						packet.defId = 1751; // Sanctuary Actor Def Id.
-						packet.ownerId = player.room.substring("sanctuary_".length()); // Owner ID
-
-						// Object info
-						packet.lastMove = new WorldObjectMoveNodeData();
-						packet.lastMove.positionInfo = new WorldObjectPositionInfo(0, 0, 0, 0, 0, 0, 0);
-						packet.lastMove.velocity = new Velocity();
-						packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
-						packet.lastMove.actorActionType = 0;
-						packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
-
-						packet.objectType = SanctuaryObjectType.House;
-						// Only send json if its not the owner
-						packet.writeFurnitureInfo = !player.account.getAccountID().equals(owner.account.getAccountID());
-						packet.funitureObject = houseInv;
-						packet.sancObjectInfo = new SanctuaryObjectData(
-								packet.lastMove.positionInfo, houseInv.get(InventoryItem.COMPONENTS_PROPERTY_NAME)
-										.getAsJsonObject().get("House").getAsJsonObject().get("gridId").getAsInt(),
-								"", 0);
-
-						player.client.sendPacket(packet);
-
-						// Log
-						if (Centuria.debugMode) {
-							System.out.println(
-									"[SANCTUARY] [UPDATE] Server to client: update house (" + packet.build() + ")");
-						}
-
-					}
-				}
+				SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
+
+				// Object creation parameters
+				packet.id = houseInv.get(InventoryItem.UUID_PROPERTY_NAME).getAsString(); // World object ID
+				packet.defId = 1751; // Sanctuary Actor Def Id.
+				packet.ownerId = ownerID; // Owner ID
+
+				// Object info
+				packet.lastMove = new WorldObjectMoveNodeData();
+				packet.lastMove.positionInfo = new WorldObjectPositionInfo(0, 0, 0, 0, 0, 0, 0);
+				packet.lastMove.velocity = new Velocity();
+				packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
+				packet.lastMove.actorActionType = 0;
+				packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
+
+				packet.objectType = SanctuaryObjectType.House;
+				packet.funitureObject = houseInv;
+				packet.sancObjectInfo = new SanctuaryObjectData(packet.lastMove.positionInfo,
+						houseInv.get(InventoryItem.COMPONENTS_PROPERTY_NAME).getAsJsonObject().get("House")
+								.getAsJsonObject().get("gridId").getAsInt(),
+						"", 0);
+
+				// Send packet, only send json if its not the owner
+				sendToRoom(srv, room, ownerID, packet, "update house");
 			}
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private void sendToRoom(GameServer srv, String room, String ownerID, SanctuaryWorldObjectInfoPacket packet,
+			String logMessage) throws IOException {
+		// The owner and the visitors receive different packets, each is built once
+		for (boolean isOwner : new boolean[] { true, false }) {
+			packet.writeFurnitureInfo = !isOwner;
+			int sent = srv.broadcastToRoom(room, packet,
+					player -> player.account.getAccountID().equals(ownerID) == isOwner);
+
+			// Log
+			if (Centuria.debugMode && sent != 0) {
+				System.out.println("[SANCTUARY] [UPDATE] Server to client: " + logMessage + " (" + packet.build() + ")");
+			}
+		}
+	}
+
 }
\ No newline at end of file
@@ -224,10 +224,8 @@ public class SanctuaryUpgradeCompletePacket implements IXtPacket<SanctuaryUpgrad
 		if (isAllowed) {
 			// Sync
 			GameServer srv = (GameServer) client.getServer();
-			for (Player plr2 : srv.getPlayers()) {
-				if (plr2.room != null && player.room != null && player.room != null && plr2.room.equals(player.room)) {
-					plr2.teleportToSanctuary(sanctuaryOwner);
-				}
+			for (Player plr2 : srv.getPlayersInRoom(player.room)) {
+				plr2.teleportToSanctuary(sanctuaryOwner);
 			}
 		} else
 			// Send packet
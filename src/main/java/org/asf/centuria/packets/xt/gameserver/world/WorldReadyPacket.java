@@ -22,6 +22,7 @@ import org.asf.centuria.modules.eventbus.EventBus;
 import org.asf.centuria.modules.events.levels.LevelJoinEvent;
 import org.asf.centuria.networking.chatserver.ChatClient;
 import org.asf.centuria.networking.gameserver.GameServer;
+import org.asf.centuria.networking.gameserver.InterestManager;
 import org.asf.centuria.networking.smartfox.SmartfoxClient;
 import org.asf.centuria.packets.xt.IXtPacket;
 import org.asf.centuria.packets.xt.gameserver.inventory.InventoryItemDownloadPacket;
@@ -66,7 +67,7 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 
 		// Load player
 		Player plr = (Player) client.container;
-		plr.respawnItems.clear();
+		plr.clearRespawnItems();
 		plr.disableSync = false;
 
 		// Override teleport
@@ -76,16 +77,12 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 		}
 
 		// Remove players
-		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (player.room != null && plr.room != null && player.room.equals(plr.room) && player != plr) {
-				plr.destroyAt(player);
-			}
-		}
+		plr.destroyAt(player -> player != plr);
 
 		// Remove players
-		for (Player player : srv.getPlayers()) {
-			if (player.room != null && plr.room != null && player.room.equals(plr.room) && player != plr) {
+		GameServer srv = (GameServer) client.getServer();
+		for (Player player : srv.getPlayersInRoom(plr.room)) {
+			if (player != plr) {
 				player.destroyAt(plr);
 			}
 		}
@@ -97,7 +94,7 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 		EventBus.getInstance().dispatchEvent(new LevelJoinEvent(plr.pendingLevelID, plr.pendingRoom, plr));
 
 		// Assign info
-		plr.room = plr.pendingRoom;
+		plr.setRoom(plr.pendingRoom);
 		plr.levelID = plr.pendingLevelID;
 
 		// Minigame sync
@@ -107,10 +104,12 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 			plr.targetRot = plr.lastRot;
 		}
 
-		// Send all other players to the current player
+		// Send all other players to the current player, with interest management
+		// nobody is near yet, nearby players are synced once the spawn is known
 		GameServer server = (GameServer) client.getServer();
-		for (Player player : server.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+		InterestManager interest = server.getInterestManager();
+		for (Player player : server.getPlayersNear(plr)) {
+			if (player != plr) {
 				player.syncTo(plr);
 				Centuria.logger.debug(MarkerManager.getMarker("WorldReadyPacket"),
 						"Syncing player " + player.account.getDisplayName() + " to " + plr.account.getDisplayName());
@@ -138,11 +137,15 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 			InteractionManager.initInteractionsFor(plr, plr.pendingLevelID);
 
 			// Sync spawn
-			for (Player player : server.getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-					plr.syncTo(player);
-					Centuria.logger.debug(MarkerManager.getMarker("WorldReadyPacket"),
-							"Syncing spawn " + player.account.getDisplayName() + " to " + plr.account.getDisplayName());
+			if (interest != null)
+				interest.update(plr);
+			else {
+				for (Player player : server.getPlayersInRoom(plr.room)) {
+					if (player != plr) {
+						plr.syncTo(player);
+						Centuria.logger.debug(MarkerManager.getMarker("WorldReadyPacket"), "Syncing spawn "
+								+ player.account.getDisplayName() + " to " + plr.account.getDisplayName());
+					}
 				}
 			}
 
@@ -186,11 +189,15 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 		plr.targetRot = null;
 
 		// Sync spawn
-		for (Player player : server.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				plr.syncTo(player);
-				Centuria.logger.debug(MarkerManager.getMarker("WorldReadyPacket"),
-						"Syncing spawn " + player.account.getDisplayName() + " to " + plr.account.getDisplayName());
+		if (interest != null)
+			interest.update(plr);
+		else {
+			for (Player player : server.getPlayersInRoom(plr.room)) {
+				if (player != plr) {
+					plr.syncTo(player);
+					Centuria.logger.debug(MarkerManager.getMarker("WorldReadyPacket"),
+							"Syncing spawn " + player.account.getDisplayName() + " to " + plr.account.getDisplayName());
+				}
 			}
 		}
 
@@ -0,0 +1,110 @@
+package org.asf.centuria.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asf.centuria.Centuria;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * Verifies the tokens issued by the server, each token is parsed once and
+ * successful verifications are cached until the token expires so the same
+ * token used for the game server, chat server and API is only checked once
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class TokenVerifier {
+
+	// Expired entries are purged once the cache grows past this size
+	private static final int MAX_CACHED_TOKENS = 10000;
+
+	private static Map<String, VerifiedToken> cache = new ConcurrentHashMap<String, VerifiedToken>();
+
+	private static ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	});
+
+	/**
+	 * Verifies a token
+	 *
+	 * @param token Token string
+	 * @return VerifiedToken instance or null if the token is invalid or expired
+	 */
+	public static VerifiedToken verify(String token) {
+		if (token == null)
+			return null;
+
+		// Check cache
+		String key = digestOf(token);
+		VerifiedToken verified = cache.get(key);
+		if (verified != null) {
+			if (!verified.isExpired())
+				return verified;
+			cache.remove(key);
+			return null;
+		}
+
+		// Split token
+		int payloadStart = token.indexOf('.') + 1;
+		if (payloadStart == 0)
+			return null;
+		int signatureStart = token.indexOf('.', payloadStart) + 1;
+		if (signatureStart == 0 || token.indexOf('.', signatureStart) != -1)
+			return null;
+
+		try {
+			// Verify signature
+			byte[] signature = Base64.getUrlDecoder().decode(token.substring(signatureStart));
+			byte[] data = token.substring(0, signatureStart - 1).getBytes(StandardCharsets.UTF_8);
+			if (!Centuria.verify(data, signature))
+				return null;
+
+			// Parse payload
+			byte[] payloadData = Base64.getUrlDecoder().decode(token.substring(payloadStart, signatureStart - 1));
+			JsonElement payload = JsonParser.parseString(new String(payloadData, StandardCharsets.UTF_8));
+			if (!payload.isJsonObject())
+				return null;
+			JsonObject claims = payload.getAsJsonObject();
+
+			// Verify expiry
+			if (!claims.has("exp"))
+				return null;
+			verified = new VerifiedToken(claims, claims.get("exp").getAsLong());
+			if (verified.isExpired())
+				return null;
+		} catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException
+				| JsonParseException e) {
+			return null;
+		}
+
+		// Cache the result
+		if (cache.size() >= MAX_CACHED_TOKENS) {
+			cache.values().removeIf(t -> t.isExpired());
+			if (cache.size() >= MAX_CACHED_TOKENS)
+				cache.clear();
+		}
+		cache.put(key, verified);
+		return verified;
+	}
+
+	private static String digestOf(String token) {
+		MessageDigest digest = digests.get();
+		digest.reset();
+		return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+	}
+
+}
@@ -0,0 +1,72 @@
+package org.asf.centuria.security;
+
+import com.google.gson.JsonObject;
+
+/**
+ *
+ * Claims of a token that passed signature verification
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class VerifiedToken {
+
+	private JsonObject payload;
+	private long expiry;
+
+	VerifiedToken(JsonObject payload, long expiry) {
+		this.payload = payload;
+		this.expiry = expiry;
+	}
+
+	/**
+	 * Retrieves the token payload, shared between all users of the token so it
+	 * must not be modified
+	 *
+	 * @return Payload JsonObject
+	 */
+	public JsonObject getPayload() {
+		return payload;
+	}
+
+	/**
+	 * Retrieves the account ID the token was issued to
+	 *
+	 * @return Account ID or null if not present
+	 */
+	public String getAccountID() {
+		if (!payload.has("uuid"))
+			return null;
+		return payload.get("uuid").getAsString();
+	}
+
+	/**
+	 * Retrieves the access scope of the token
+	 *
+	 * @return Access scope (eg. gameplay) or null if not present
+	 */
+	public String getAccess() {
+		if (!payload.has("acs"))
+			return null;
+		return payload.get("acs").getAsString();
+	}
+
+	/**
+	 * Retrieves the token expiry time
+	 *
+	 * @return Expiry time in seconds since epoch
+	 */
+	public long getExpiry() {
+		return expiry;
+	}
+
+	/**
+	 * Checks if the token has expired
+	 *
+	 * @return True if expired, false otherwise
+	 */
+	public boolean isExpired() {
+		return expiry < System.currentTimeMillis() / 1000;
+	}
+
+}
@@ -0,0 +1,297 @@
+package org.asf.centuria.tools;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.asf.centuria.Centuria;
+import org.asf.centuria.data.XtWriter;
+import org.asf.centuria.entities.players.Player;
+import org.asf.centuria.interactions.InteractionManager;
+import org.asf.centuria.interactions.NetworkedObjects;
+import org.asf.centuria.interactions.dataobjects.NetworkedObject;
+import org.asf.centuria.interactions.dataobjects.StateInfo;
+import org.asf.centuria.interactions.modules.InteractionModule;
+import org.asf.centuria.networking.smartfox.BaseSmartfoxServer;
+import org.asf.centuria.networking.smartfox.PreparedPacket;
+import org.asf.centuria.networking.smartfox.SmartfoxClient;
+import org.asf.centuria.packets.smartfox.ISmartfoxPacket;
+import org.asf.centuria.util.RandomSelectorUtil;
+
+/**
+ *
+ * Differential test of the interaction interpreters, runs every state and
+ * branch of every networked object through the current interpreters and the
+ * interpreters from before state commands were compiled
+ * ({@link LegacyStateInterpreter}) and compares their effects: the states and
+ * state objects set on the player, the packets sent and the calls made into
+ * interaction modules, in order.<br/>
+ * <br/>
+ * Interaction modules are replaced by a recorder as they need a logged-in
+ * player, and both runs use the same random seed. Commands that fail must fail
+ * with the same exception.<br/>
+ * <br/>
+ * The object definitions (networkedobjects.json) are not part of the source
+ * tree. Generate them with {@link NetworkedObjectsConverter} or take them from
+ * a server jar, then run the tool with the folder holding the file on the
+ * classpath:<br/>
+ * <code>java -cp &lt;data-folder&gt;:&lt;server-jar&gt;:libraries/*
+ * org.asf.centuria.tools.CompiledStateTest</code>
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class CompiledStateTest {
+
+	// Runs producing more output than this are assumed to loop
+	private static final int MAX_OUTPUT = 10000;
+
+	private static RecordingModule recorder = new RecordingModule();
+	private static Field random;
+	private static int checked;
+	private static int mismatches;
+
+	public static void main(String[] args) throws Exception {
+		if (CompiledStateTest.class.getClassLoader().getResource("networkedobjects.json") == null) {
+			System.err.println("networkedobjects.json was not found on the classpath, generate it with "
+					+ "NetworkedObjectsConverter and add its folder to the classpath:");
+			System.err.println(
+					"java -cp <data-folder>:<server-jar>:libraries/* org.asf.centuria.tools.CompiledStateTest");
+			System.exit(1);
+		}
+		if (Centuria.logger == null)
+			Centuria.logger = LogManager.getLogger("CENTURIA");
+		NetworkedObjects.init();
+
+		// Replace the interaction modules with the recorder
+		Field modulesField = InteractionManager.class.getDeclaredField("modules");
+		modulesField.setAccessible(true);
+		@SuppressWarnings("unchecked")
+		ArrayList<InteractionModule> modules = (ArrayList<InteractionModule>) modulesField.get(null);
+		modules.clear();
+		modules.add(recorder);
+		LegacyStateInterpreter.modules = modules;
+		random = RandomSelectorUtil.class.getDeclaredField("rnd");
+		random.setAccessible(true);
+
+		// Run all states and branches
+		for (String collection : NetworkedObjects.getCollectionIds()) {
+			NetworkedObjects.getObjects(collection).objects.forEach((id, obj) -> check(id, obj));
+		}
+		System.out.println("Checked " + checked + " interactions, " + mismatches + " mismatches");
+		if (mismatches != 0)
+			System.exit(1);
+	}
+
+	private static void check(String id, NetworkedObject obj) {
+		for (String key : obj.stateInfo.keySet()) {
+			ArrayList<StateInfo> states = obj.stateInfo.get(key);
+			compare(id + " state " + key, plr -> InteractionManager.runStates(states, plr, obj, id),
+					plr -> LegacyStateInterpreter.runStates(states, plr, obj, id));
+
+			for (StateInfo state : states) {
+				for (String branch : state.branches.keySet()) {
+					compare(id + " state " + key + " branch " + branch,
+							plr -> InteractionManager.runBranches(plr, state.branches, branch, id, obj, state),
+							plr -> LegacyStateInterpreter.runBranches(plr, state.branches, branch, id, obj, state));
+				}
+			}
+		}
+	}
+
+	private static void compare(String name, Consumer<Player> current, Consumer<Player> legacy) {
+		checked++;
+		long seed = checked;
+		Effects expected = run(legacy, seed);
+		Effects actual = run(current, seed);
+		if (!expected.equals(actual)) {
+			mismatches++;
+			System.out.println("Mismatch in " + name + ":");
+			System.out.println("  expected: " + expected);
+			System.out.println("  got:      " + actual);
+		}
+	}
+
+	private static Effects run(Consumer<Player> interaction, long seed) {
+		Effects effects = new Effects();
+		Player plr = new Player();
+		plr.client = new RecordingClient(effects.output);
+		recorder.output = effects.output;
+		try {
+			random.set(null, new Random(seed));
+			interaction.accept(plr);
+		} catch (StackOverflowError | OutputLimitException e) {
+			// Looping branches, the point at which they stop depends on the stack size
+			effects.error = "loops";
+			effects.output.clear();
+			plr.states.clear();
+			plr.stateObjects.clear();
+		} catch (Throwable e) {
+			// Compare the exception type
+			effects.error = e.getClass().getName();
+		}
+		effects.states = new HashMap<String, Integer>(plr.states);
+		effects.stateObjects = new HashMap<String, ArrayList<StateInfo>>(plr.stateObjects);
+		return effects;
+	}
+
+	private static void record(List<String> output, String entry) {
+		if (output.size() >= MAX_OUTPUT)
+			throw new OutputLimitException();
+		output.add(entry);
+	}
+
+	private static String identify(StateInfo state) {
+		if (state == null)
+			return "null";
+		return state.command + "@" + Integer.toHexString(System.identityHashCode(state));
+	}
+
+	private static class OutputLimitException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Effects of an interaction
+	 */
+	private static class Effects {
+		public Map<String, Integer> states;
+		public Map<String, ArrayList<StateInfo>> stateObjects;
+		public ArrayList<String> output = new ArrayList<String>();
+		public String error;
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Effects))
+				return false;
+			Effects other = (Effects) obj;
+			return states.equals(other.states) && stateObjects.equals(other.stateObjects)
+					&& output.equals(other.output) && Objects.equals(error, other.error);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(states, output, error);
+		}
+
+		@Override
+		public String toString() {
+			return "states " + states + ", state objects " + stateObjects.keySet() + ", output " + output
+					+ ", error " + error;
+		}
+	}
+
+	/**
+	 * Records the calls made into interaction modules
+	 */
+	private static class RecordingModule extends InteractionModule {
+		public List<String> output;
+
+		@Override
+		public void prepareWorld(int levelID, List<String> ids, Player player) {
+		}
+
+		@Override
+		public boolean canHandle(Player player, String id, NetworkedObject object) {
+			return false;
+		}
+
+		@Override
+		public boolean handleInteractionSuccess(Player player, String id, NetworkedObject object, int state) {
+			return false;
+		}
+
+		@Override
+		public int isDataRequestValid(Player player, String id, NetworkedObject object, int state) {
+			record(output, "module isDataRequestValid " + id + " " + state);
+			return -1;
+		}
+
+		@Override
+		public boolean handleCommand(Player player, String id, NetworkedObject object, StateInfo command,
+				StateInfo parent) {
+			record(output, "module handleCommand " + id + " " + identify(command) + " " + identify(parent));
+			return false;
+		}
+	}
+
+	/**
+	 * Records the packets sent to the player
+	 */
+	private static class RecordingClient extends SmartfoxClient {
+		private List<String> output;
+
+		public RecordingClient(List<String> output) {
+			this.output = output;
+		}
+
+		@Override
+		public void sendPacket(ISmartfoxPacket packet) {
+			try {
+				record(output, "packet " + PreparedPacket.of(packet));
+			} catch (IOException e) {
+				record(output, "packet failed " + e.getClass().getName());
+			}
+		}
+
+		@Override
+		public void sendPacket(String packet) {
+			record(output, "packet " + packet);
+		}
+
+		@Override
+		public void sendPacket(XtWriter packet) {
+			record(output, "packet " + packet.encode());
+		}
+
+		@Override
+		public void sendPacket(PreparedPacket packet) {
+			record(output, "packet " + packet);
+		}
+
+		@Override
+		public String getAddress() {
+			return "test";
+		}
+
+		@Override
+		protected void stop() {
+		}
+
+		@Override
+		public boolean isConnected() {
+			return true;
+		}
+
+		@Override
+		public void disconnect() {
+		}
+
+		@Override
+		public <T extends ISmartfoxPacket> T readPacket(Class<T> packetType) throws IOException {
+			throw new IOException("Not supported");
+		}
+
+		@Override
+		public String readRawPacket() throws IOException {
+			throw new IOException("Not supported");
+		}
+
+		@Override
+		public BaseSmartfoxServer getServer() {
+			return null;
+		}
+
+		@Override
+		protected void closeClient() {
+		}
+	}
+
+}
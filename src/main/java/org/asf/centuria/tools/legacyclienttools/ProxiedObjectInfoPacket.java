@@ -123,7 +123,7 @@ public class ProxiedObjectInfoPacket implements IXtPacket<ProxiedObjectInfoPacke
 			wr.writeInt(unk);
 
 			wr.writeString("");
-			((SmartfoxClient) client.container).sendPacket(wr.encode());
+			((SmartfoxClient) client.container).sendPacket(wr);
 
 			return true;
 		}
@@ -89,7 +89,7 @@ public class ProxiedObjectUpdatePacket implements IXtPacket<ProxiedObjectUpdateP
 				wr.writeInt(rd.readInt());
 
 			wr.writeString("");
-			((SmartfoxClient) client.container).sendPacket(wr.encode());
+			((SmartfoxClient) client.container).sendPacket(wr);
 			return true;
 		} else {
 			rd.read();
@@ -152,7 +152,7 @@ public class ProxiedObjectUpdatePacket implements IXtPacket<ProxiedObjectUpdateP
 			wr.writeInt(action);
 
 			wr.writeString("");
-			((SmartfoxClient) client.container).sendPacket(wr.encode());
+			((SmartfoxClient) client.container).sendPacket(wr);
 
 			return true;
 		}
@@ -52,7 +52,7 @@ public class ProxiedRoomJoinPacket implements IXtPacket<ProxiedRoomJoinPacket> {
 			wr.writeString(uuid);
 			wr.writeString(converstaion);
 			wr.writeString("");
-			((SmartfoxClient)client.container).sendPacket(wr.encode());
+			((SmartfoxClient)client.container).sendPacket(wr);
 			
 			return true;
 		} else
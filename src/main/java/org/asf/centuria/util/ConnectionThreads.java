@@ -0,0 +1,121 @@
+package org.asf.centuria.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 
+ * Creates the threads used for per-connection work (client read loops, task
+ * threads and client timers), these can be platform or virtual threads
+ * depending on the server configuration
+ * 
+ * @since Beta 1.5.4
+ *
+ */
+public class ConnectionThreads {
+
+	private static boolean useVirtualThreads = false;
+
+	// Thread.ofVirtual() builder methods, looked up at runtime as virtual threads
+	// are not part of the java version we compile against
+	private static Method ofVirtual;
+	private static Method builderName;
+	private static Method builderUnstarted;
+
+	static {
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			builderName = builder.getMethod("name", String.class);
+			builderUnstarted = builder.getMethod("unstarted", Runnable.class);
+		} catch (NoSuchMethodException | ClassNotFoundException e) {
+			ofVirtual = null;
+		}
+	}
+
+	/**
+	 * Checks if the running java version supports virtual threads
+	 * 
+	 * @return True if virtual threads are supported, false otherwise
+	 */
+	public static boolean virtualThreadsSupported() {
+		if (ofVirtual == null)
+			return false;
+
+		// Make sure they arent a disabled preview feature
+		try {
+			createVirtual("Virtual Thread Check", () -> {
+			});
+			return true;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Enables or disables virtual threads for connection work
+	 * 
+	 * @param enabled True to use virtual threads, false to use platform threads
+	 * @return True if the setting was applied, false if virtual threads are not
+	 *         supported by the running java version
+	 */
+	public static boolean useVirtualThreads(boolean enabled) {
+		if (enabled && !virtualThreadsSupported())
+			return false;
+		useVirtualThreads = enabled;
+		return true;
+	}
+
+	/**
+	 * Checks if connection work runs on virtual threads
+	 * 
+	 * @return True if virtual threads are in use, false otherwise
+	 */
+	public static boolean isUsingVirtualThreads() {
+		return useVirtualThreads;
+	}
+
+	/**
+	 * Creates a (unstarted) connection thread, platform threads are created as
+	 * daemon threads
+	 * 
+	 * @param name Thread name
+	 * @param task Thread task
+	 * @return Thread instance
+	 */
+	public static Thread create(String name, Runnable task) {
+		if (useVirtualThreads)
+			return createVirtual(name, task);
+		Thread th = new Thread(task, name);
+		th.setDaemon(true);
+		return th;
+	}
+
+	/**
+	 * Creates and starts a connection thread
+	 * 
+	 * @param name Thread name
+	 * @param task Thread task
+	 * @return Thread instance
+	 */
+	public static Thread start(String name, Runnable task) {
+		Thread th = create(name, task);
+		th.start();
+		return th;
+	}
+
+	private static Thread createVirtual(String name, Runnable task) {
+		try {
+			Object builder = ofVirtual.invoke(null);
+			builder = builderName.invoke(builder, name);
+			return (Thread) builderUnstarted.invoke(builder, task);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
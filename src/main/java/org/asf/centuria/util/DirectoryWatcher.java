@@ -0,0 +1,160 @@
+package org.asf.centuria.util;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
+
+/**
+ *
+ * Watches files in a directory and runs a task on its own thread when they
+ * change. Uses the file system watch service and falls back to checking the
+ * modification times if the watch service is not available.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class DirectoryWatcher {
+
+	// Changes within this time are handled once, editors often write a file in
+	// multiple steps
+	private static final long DEBOUNCE_DELAY = 500;
+	private static final long POLL_INTERVAL = 5000;
+
+	private String name;
+	private Path directory;
+	private List<String> files;
+	private Runnable task;
+	private volatile boolean polling;
+
+	/**
+	 * Creates a directory watcher
+	 *
+	 * @param name      Watcher name, used for the thread name and logging
+	 * @param directory Directory to watch
+	 * @param task      Task to run when a watched file changes
+	 * @param files     Names of the files to watch
+	 */
+	public DirectoryWatcher(String name, Path directory, Runnable task, String... files) {
+		this.name = name;
+		this.directory = directory;
+		this.task = task;
+		this.files = Arrays.asList(files);
+	}
+
+	/**
+	 * Starts watching
+	 */
+	public void start() {
+		Thread th = new Thread(this::run, name + " Watcher");
+		th.setDaemon(true);
+		th.start();
+	}
+
+	/**
+	 * Checks if the watcher fell back to checking modification times
+	 *
+	 * @return True if polling, false if using the watch service
+	 */
+	public boolean isPolling() {
+		return polling;
+	}
+
+	private void run() {
+		WatchService watcher = null;
+		try {
+			watcher = directory.getFileSystem().newWatchService();
+			directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException | UnsupportedOperationException e) {
+			watcher = fallback(watcher, e);
+		}
+
+		long[] lastModified = getLastModified();
+		while (true) {
+			boolean changed = false;
+			try {
+				if (watcher != null) {
+					// Wait for events
+					WatchKey key = watcher.take();
+					changed = isRelevant(key);
+					if (!key.reset())
+						watcher = fallback(watcher, null);
+
+					// Wait for the rest of the changes
+					if (changed && watcher != null) {
+						Thread.sleep(DEBOUNCE_DELAY);
+						while ((key = watcher.poll()) != null) {
+							key.pollEvents();
+							key.reset();
+						}
+					}
+				} else {
+					// Check modification times
+					Thread.sleep(POLL_INTERVAL);
+					long[] current = getLastModified();
+					changed = !Arrays.equals(current, lastModified);
+					lastModified = current;
+				}
+			} catch (InterruptedException e) {
+			} catch (ClosedWatchServiceException e) {
+				watcher = fallback(null, e);
+			}
+
+			// Run the task
+			if (changed) {
+				try {
+					task.run();
+				} catch (Exception e) {
+					Centuria.logger.error(MarkerManager.getMarker("WATCHER"), name + " reload failed", e);
+				}
+			}
+		}
+	}
+
+	private boolean isRelevant(WatchKey key) {
+		boolean relevant = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+				relevant = true;
+			else if (event.context() instanceof Path && files.contains(event.context().toString()))
+				relevant = true;
+		}
+		return relevant;
+	}
+
+	private WatchService fallback(WatchService watcher, Exception error) {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+			}
+		}
+		polling = true;
+		Centuria.logger.warn(MarkerManager.getMarker("WATCHER"), "Unable to watch " + directory + " for " + name
+				+ " changes, checking the files every " + (POLL_INTERVAL / 1000) + " seconds instead", error);
+		return null;
+	}
+
+	private long[] getLastModified() {
+		long[] times = new long[files.size()];
+		for (int i = 0; i < times.length; i++) {
+			try {
+				times[i] = Files.getLastModifiedTime(directory.resolve(files.get(i))).toMillis();
+			} catch (IOException e) {
+				times[i] = -1;
+			}
+		}
+		return times;
+	}
+
+}
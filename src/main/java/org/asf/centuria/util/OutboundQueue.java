@@ -0,0 +1,202 @@
+package org.asf.centuria.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.asf.centuria.util.TimerService.Timeout;
+
+/**
+ *
+ * Tracks the packets queued for a single connection, limits the queue by
+ * message count and size. Once a connection is over the high-water mark
+ * droppable packets are discarded, connections that stay over it for too long
+ * or grow past the hard limit are evicted.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class OutboundQueue {
+
+	// The hard limit is this many times the high-water mark
+	private static final int HARD_LIMIT_FACTOR = 4;
+
+	private static volatile int highWaterMessages = 2000;
+	private static volatile long highWaterBytes = 4 * 1024 * 1024;
+	private static volatile long evictionDelay = 10000;
+
+	private AtomicInteger messages = new AtomicInteger();
+	private AtomicLong bytes = new AtomicLong();
+	private AtomicLong dropped = new AtomicLong();
+	private volatile long overHighWaterSince;
+	private volatile boolean evicted;
+	private Runnable evictTask;
+
+	// Checks the eviction delay of connections that stopped receiving packets
+	private Timeout evictionTimer;
+
+	/**
+	 * Creates an outbound queue
+	 *
+	 * @param evictTask Task run once when the connection is evicted, should
+	 *                  close the connection without blocking
+	 */
+	public OutboundQueue(Runnable evictTask) {
+		this.evictTask = evictTask;
+	}
+
+	/**
+	 * Configures the limits of all outbound queues
+	 *
+	 * @param messages      High-water mark in queued messages
+	 * @param bytes         High-water mark in queued bytes
+	 * @param evictionDelay Time in milliseconds a connection may stay over the
+	 *                      high-water mark before it is evicted
+	 */
+	public static void configure(int messages, long bytes, long evictionDelay) {
+		highWaterMessages = messages;
+		highWaterBytes = bytes;
+		OutboundQueue.evictionDelay = evictionDelay;
+	}
+
+	/**
+	 * Called before queueing a packet
+	 *
+	 * @param size      Packet size in bytes
+	 * @param droppable True if the packet may be discarded when the connection is
+	 *                  lagging behind
+	 * @return True if the packet should be queued, false if it should be
+	 *         discarded
+	 */
+	public boolean offer(int size, boolean droppable) {
+		if (evicted)
+			return false;
+
+		// Check limits
+		int queuedMessages = messages.get();
+		long queuedBytes = bytes.get();
+		if (queuedMessages >= highWaterMessages || queuedBytes >= highWaterBytes) {
+			long now = System.currentTimeMillis();
+			if (overHighWaterSince == 0) {
+				overHighWaterSince = now;
+				scheduleEvictionCheck(evictionDelay);
+			}
+			if (queuedMessages >= highWaterMessages * HARD_LIMIT_FACTOR
+					|| queuedBytes >= highWaterBytes * HARD_LIMIT_FACTOR
+					|| now - overHighWaterSince >= evictionDelay) {
+				evict();
+				return false;
+			}
+			if (droppable) {
+				dropped.incrementAndGet();
+				return false;
+			}
+		}
+
+		messages.incrementAndGet();
+		bytes.addAndGet(size);
+		return true;
+	}
+
+	/**
+	 * Called after a queued packet was written or discarded
+	 *
+	 * @param size Packet size in bytes
+	 */
+	public void sent(int size) {
+		int queuedMessages = messages.decrementAndGet();
+		long queuedBytes = bytes.addAndGet(-size);
+		if (queuedMessages < highWaterMessages && queuedBytes < highWaterBytes)
+			overHighWaterSince = 0;
+		else
+			checkEviction();
+	}
+
+	/**
+	 * Clears the queue counters, used when the queued packets are discarded
+	 */
+	public void clear() {
+		messages.set(0);
+		bytes.set(0);
+		overHighWaterSince = 0;
+	}
+
+	/**
+	 * Retrieves the amount of queued packets
+	 *
+	 * @return Queued packet count
+	 */
+	public int getMessages() {
+		return messages.get();
+	}
+
+	/**
+	 * Retrieves the size of all queued packets
+	 *
+	 * @return Queued size in bytes
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Retrieves the amount of packets discarded because the connection was
+	 * lagging behind
+	 *
+	 * @return Dropped packet count
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Checks if the queue is over the high-water mark
+	 *
+	 * @return True if the connection is lagging behind, false otherwise
+	 */
+	public boolean isOverHighWater() {
+		return overHighWaterSince != 0;
+	}
+
+	/**
+	 * Checks if the connection was evicted
+	 *
+	 * @return True if the connection was evicted, false otherwise
+	 */
+	public boolean isEvicted() {
+		return evicted;
+	}
+
+	private synchronized void scheduleEvictionCheck(long delay) {
+		if (evictionTimer != null || evicted)
+			return;
+		evictionTimer = TimerService.getInstance().schedule(() -> {
+			synchronized (this) {
+				evictionTimer = null;
+			}
+			checkEviction();
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void checkEviction() {
+		long since = overHighWaterSince;
+		if (since == 0 || evicted)
+			return;
+
+		// Evict connections that stayed over the high-water mark for too long, even
+		// if nothing new is queued for them
+		long remaining = since + evictionDelay - System.currentTimeMillis();
+		if (remaining <= 0)
+			evict();
+		else
+			scheduleEvictionCheck(remaining);
+	}
+
+	private synchronized void evict() {
+		if (evicted)
+			return;
+		evicted = true;
+		evictTask.run();
+	}
+
+}
@@ -1,15 +1,21 @@
 package org.asf.centuria.util;
 
-import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.logging.log4j.MarkerManager;
 import org.asf.centuria.Centuria;
 
 public class TaskThread extends Thread {
 
-	private ArrayList<Runnable> tasks = new ArrayList<Runnable>();
-	private boolean stop = false;
+	private ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private AtomicInteger pending = new AtomicInteger();
+	private volatile boolean stop = false;
+	private Runnable batchCompleteTask;
+
+	// Virtual thread running the tasks, null if this thread runs them itself
+	private volatile Thread runner;
 
 	public TaskThread() {
 		super();
@@ -19,51 +25,85 @@ public class TaskThread extends Thread {
 		super(name);
 	}
 
+	/**
+	 * Creates a task thread with a batch completion task
+	 * 
+	 * @since Beta 1.5.4
+	 * @param name              Thread name
+	 * @param batchCompleteTask Task run after all queued tasks have been run (eg.
+	 *                          flushing a socket once for a batch of packets)
+	 */
+	public TaskThread(String name, Runnable batchCompleteTask) {
+		super(name);
+		this.batchCompleteTask = batchCompleteTask;
+	}
+
 	@Override
 	public void run() {
+		int ran = 0;
 		while (!stop) {
-			while (tasks.isEmpty()) {
-				try {
-					if (stop)
-						break;
-					Thread.sleep(1);
-				} catch (InterruptedException e) {
+			Runnable task = tasks.poll();
+			if (task == null) {
+				// Queue is drained, complete the batch
+				if (ran != 0) {
+					completeBatch();
+					pending.addAndGet(-ran);
+					ran = 0;
+					continue;
 				}
-			}
 
-			ArrayList<Runnable> tasks;
-			while (true) {
-				try {
-					tasks = new ArrayList<Runnable>(this.tasks);
-					break;
-				} catch (ConcurrentModificationException e) {
-				}
+				// Wait for new tasks
+				LockSupport.park(this);
+				continue;
 			}
 
-			for (Runnable task : tasks) {
-				try {
-					if (task != null)
-						task.run();
-				} catch (Exception e) {
-					Centuria.logger.error(MarkerManager.getMarker("TaskThreads"), "Exception in TaskThread " + getName(), e);
-					e.printStackTrace();
-				}
-				try {
-					this.tasks.remove(task);
-				} catch (Exception e) {
-				}
+			try {
+				task.run();
+			} catch (Exception e) {
+				Centuria.logger.error(MarkerManager.getMarker("TaskThreads"), "Exception in TaskThread " + getName(), e);
+				e.printStackTrace();
 			}
+			ran++;
+		}
+
+		// Complete the last batch
+		if (ran != 0) {
+			completeBatch();
+			pending.addAndGet(-ran);
 		}
 	}
 
+	private void completeBatch() {
+		if (batchCompleteTask == null)
+			return;
+		try {
+			batchCompleteTask.run();
+		} catch (Exception e) {
+			Centuria.logger.error(MarkerManager.getMarker("TaskThreads"), "Exception in TaskThread " + getName(), e);
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		// Task threads are per-connection, run on a virtual thread if enabled
+		if (ConnectionThreads.isUsingVirtualThreads()) {
+			runner = ConnectionThreads.create(getName(), this::run);
+			runner.start();
+		} else
+			super.start();
+	}
+
 	/**
 	 * Schedules a task
 	 * 
 	 * @param task Task to schedule
 	 */
 	public void schedule(Runnable task) {
-		if (!stop)
+		if (!stop && task != null) {
+			pending.incrementAndGet();
 			tasks.add(task);
+			LockSupport.unpark(runner != null ? runner : this);
+		}
 	}
 
 	/**
@@ -71,11 +111,16 @@ public class TaskThread extends Thread {
 	 */
 	public void stopCleanly() {
 		stop = true;
+		LockSupport.unpark(runner != null ? runner : this);
 		try {
-			join();
+			if (runner != null)
+				runner.join();
+			else
+				join();
 		} catch (InterruptedException e) {
 		}
 		tasks.clear();
+		pending.set(0);
 	}
 
 	/**
@@ -92,7 +137,7 @@ public class TaskThread extends Thread {
 	 */
 	public void flush(int timeout) {
 		int i = 0;
-		while (!tasks.isEmpty()) {
+		while (pending.get() != 0) {
 			try {
 				if (i < timeout * 10)
 					i++;
@@ -0,0 +1,276 @@
+package org.asf.centuria.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.MarkerManager;
+import org.asf.centuria.Centuria;
+
+/**
+ *
+ * Shared timer service, a hashed timing wheel driven by a single thread.
+ * Scheduling and cancelling timers is constant-time so a timer can be used for
+ * each player or object instead of a thread polling all of them.<br/>
+ * <br/>
+ * Timer tasks run on the timer thread and must not block, blocking work should
+ * be handed off to another thread.
+ *
+ * @since Beta 1.5.4
+ *
+ */
+public class TimerService {
+
+	private static final long TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final int WHEEL_SIZE = 512;
+
+	private static TimerService instance;
+
+	private Bucket[] wheel = new Bucket[WHEEL_SIZE];
+	private ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<Timeout>();
+	private ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<Timeout>();
+	private AtomicLong scheduled = new AtomicLong();
+	private long startTime;
+	private long tick;
+
+	/**
+	 * Scheduled timer
+	 */
+	public class Timeout {
+		private static final int PENDING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private Runnable task;
+		private long deadline;
+		private long period;
+		private long remainingRounds;
+		private AtomicInteger state = new AtomicInteger(PENDING);
+
+		// Bucket list, only accessed by the timer thread
+		private Bucket bucket;
+		private Timeout next;
+		private Timeout previous;
+
+		private Timeout(Runnable task, long deadline, long period) {
+			this.task = task;
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		/**
+		 * Cancels the timer
+		 *
+		 * @return True if the timer was cancelled, false if it already expired or
+		 *         was cancelled before
+		 */
+		public boolean cancel() {
+			if (!state.compareAndSet(PENDING, CANCELLED))
+				return false;
+			cancelled.add(this);
+			return true;
+		}
+
+		/**
+		 * Checks if the timer was cancelled
+		 *
+		 * @return True if cancelled, false otherwise
+		 */
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		/**
+		 * Checks if the timer has run, repeating timers never expire
+		 *
+		 * @return True if expired, false otherwise
+		 */
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+	}
+
+	private static class Bucket {
+		private Timeout head;
+		private Timeout tail;
+
+		public void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null)
+				head = tail = timeout;
+			else {
+				tail.next = timeout;
+				timeout.previous = tail;
+				tail = timeout;
+			}
+		}
+
+		public Timeout remove(Timeout timeout) {
+			Timeout next = timeout.next;
+			if (timeout.previous != null)
+				timeout.previous.next = next;
+			if (next != null)
+				next.previous = timeout.previous;
+			if (timeout == head)
+				head = next;
+			if (timeout == tail)
+				tail = timeout.previous;
+			timeout.previous = null;
+			timeout.next = null;
+			timeout.bucket = null;
+			return next;
+		}
+	}
+
+	private TimerService() {
+		for (int i = 0; i < wheel.length; i++)
+			wheel[i] = new Bucket();
+		startTime = System.nanoTime();
+
+		Thread th = new Thread(this::run, "Timer Thread");
+		th.setDaemon(true);
+		th.start();
+	}
+
+	/**
+	 * Retrieves the shared timer service
+	 *
+	 * @return TimerService instance
+	 */
+	public static synchronized TimerService getInstance() {
+		if (instance == null)
+			instance = new TimerService();
+		return instance;
+	}
+
+	/**
+	 * Schedules a task to run once
+	 *
+	 * @param task  Task to run
+	 * @param delay Delay before the task runs
+	 * @param unit  Delay time unit
+	 * @return Timeout instance
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		return add(new Timeout(task, deadlineAfter(delay, unit), 0));
+	}
+
+	/**
+	 * Schedules a task to run repeatedly until its timer is cancelled
+	 *
+	 * @param task         Task to run
+	 * @param initialDelay Delay before the first run
+	 * @param period       Time between runs
+	 * @param unit         Delay and period time unit
+	 * @return Timeout instance
+	 */
+	public Timeout scheduleRepeating(Runnable task, long initialDelay, long period, TimeUnit unit) {
+		if (period <= 0)
+			throw new IllegalArgumentException("Period must be greater than zero");
+		return add(new Timeout(task, deadlineAfter(initialDelay, unit), unit.toNanos(period)));
+	}
+
+	/**
+	 * Retrieves the amount of scheduled timers
+	 *
+	 * @return Timer count
+	 */
+	public long getScheduledCount() {
+		return scheduled.get();
+	}
+
+	private long deadlineAfter(long delay, TimeUnit unit) {
+		return System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+	}
+
+	private Timeout add(Timeout timeout) {
+		scheduled.incrementAndGet();
+		pending.add(timeout);
+		return timeout;
+	}
+
+	private void run() {
+		while (true) {
+			// Wait for the next tick
+			long tickDeadline = (tick + 1) * TICK_DURATION;
+			long wait = tickDeadline - (System.nanoTime() - startTime);
+			if (wait > 0) {
+				try {
+					Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+				} catch (InterruptedException e) {
+				}
+				continue;
+			}
+
+			// Process the tick
+			removeCancelled();
+			transferPending();
+			expire(wheel[(int) (tick & (WHEEL_SIZE - 1))], tickDeadline);
+			tick++;
+		}
+	}
+
+	private void removeCancelled() {
+		while (true) {
+			Timeout timeout = cancelled.poll();
+			if (timeout == null)
+				break;
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+				scheduled.decrementAndGet();
+			}
+		}
+	}
+
+	private void transferPending() {
+		// Limit the amount of transfers so a flood of new timers cannot stall the
+		// wheel
+		for (int i = 0; i < 100000; i++) {
+			Timeout timeout = pending.poll();
+			if (timeout == null)
+				break;
+			if (timeout.state.get() == Timeout.CANCELLED) {
+				scheduled.decrementAndGet();
+				continue;
+			}
+
+			// Find the bucket, timers that are already due go in the current one
+			long ticks = timeout.deadline / TICK_DURATION;
+			timeout.remainingRounds = (ticks - tick) / WHEEL_SIZE;
+			wheel[(int) (Math.max(ticks, tick) & (WHEEL_SIZE - 1))].add(timeout);
+		}
+	}
+
+	private void expire(Bucket bucket, long tickDeadline) {
+		Timeout timeout = bucket.head;
+		while (timeout != null) {
+			if (timeout.remainingRounds > 0 || timeout.deadline > tickDeadline) {
+				timeout.remainingRounds--;
+				timeout = timeout.next;
+				continue;
+			}
+			Timeout next = bucket.remove(timeout);
+
+			// Run the task
+			boolean repeat = timeout.period > 0;
+			if (repeat ? timeout.state.get() == Timeout.PENDING
+					: timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+				try {
+					timeout.task.run();
+				} catch (Throwable e) {
+					Centuria.logger.error(MarkerManager.getMarker("TIMER"), "Timer task failed", e);
+				}
+			}
+
+			// Reschedule repeating timers
+			if (repeat && timeout.state.get() == Timeout.PENDING) {
+				timeout.deadline += timeout.period;
+				pending.add(timeout);
+			} else
+				scheduled.decrementAndGet();
+			timeout = next;
+		}
+	}
+
+}